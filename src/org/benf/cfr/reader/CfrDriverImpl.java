@@ -4,9 +4,11 @@ import org.benf.cfr.reader.api.CfrDriver;
 import org.benf.cfr.reader.api.ClassFileSource;
 import org.benf.cfr.reader.api.OutputSinkFactory;
 import org.benf.cfr.reader.apiunreleased.ClassFileSource2;
+import org.benf.cfr.reader.bytecode.PassInstrumentation;
 import org.benf.cfr.reader.state.ClassFileSourceImpl;
 import org.benf.cfr.reader.state.ClassFileSourceWrapper;
 import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.MappedClassFileSource;
 import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
@@ -28,15 +30,32 @@ public class CfrDriverImpl implements CfrDriver {
             options = new OptionsImpl(new HashMap<String, String>());
         }
         if (source == null) {
-            source = new ClassFileSourceImpl(options);
+            source = createClassFileSource(options);
         }
         this.outputSinkFactory = outputSinkFactory;
         this.options = options;
         this.classFileSource = source instanceof ClassFileSource2 ? (ClassFileSource2)source : new ClassFileSourceWrapper(source);
     }
 
+    static ClassFileSourceImpl createClassFileSource(Options options) {
+        return options.getOption(OptionsImpl.MEMORY_MAP) ? new MappedClassFileSource(options) : new ClassFileSourceImpl(options);
+    }
+
     @Override
     public void analyse(List<String> toAnalyse) {
+        try {
+            analyseRetainingSource(toAnalyse);
+        } finally {
+            if (classFileSource instanceof ClassFileSourceImpl) {
+                ((ClassFileSourceImpl) classFileSource).close();
+            }
+        }
+    }
+
+    /*
+     * As analyse, but leaves the class file source open, as it's about to be used again (see Daemon).
+     */
+    void analyseRetainingSource(List<String> toAnalyse) {
         /*
          * There's an interesting question here - do we want to skip inner classes, if we've been given a wildcard?
          * (or a wildcard expanded by the operating system).
@@ -46,15 +65,20 @@ public class CfrDriverImpl implements CfrDriver {
         boolean skipInnerClass = toAnalyse.size() > 1 && options.getOption(OptionsImpl.SKIP_BATCH_INNER_CLASSES);
 
         Collections.sort(toAnalyse);
+        analyse(toAnalyse, skipInnerClass);
+    }
+
+    private void analyse(List<String> toAnalyse, boolean skipInnerClass) {
+        // Unlike everything else, this covers the whole run.
+        PassInstrumentation passInstrumentation = PassInstrumentation.create(options);
         for (String path : toAnalyse) {
             // TODO : We shouldn't have to discard state here.  But we do, because
             // it causes test fails.  (used class name table retains useful symbols).
             classFileSource.informAnalysisRelativePathDetail(null, null);
             // Note - both of these need to be reset, as they have caches.
             DCCommonState dcCommonState = new DCCommonState(options, classFileSource);
-            DumperFactory dumperFactory = outputSinkFactory != null ?
-                    new SinkDumperFactory(outputSinkFactory, options) :
-                    new InternalDumperFactoryImpl(options);
+            dcCommonState.setPassInstrumentation(passInstrumentation);
+            DumperFactory dumperFactory = createDumperFactory();
 
             AnalysisType type = options.getOption(OptionsImpl.ANALYSE_AS);
             if (type == null || type == AnalysisType.DETECT) {
@@ -67,5 +91,14 @@ public class CfrDriverImpl implements CfrDriver {
                 Driver.doClass(dcCommonState, path, skipInnerClass, dumperFactory);
             }
         }
+        if (passInstrumentation != null) {
+            createDumperFactory().getInstrumentationDumper().write(passInstrumentation.toJson());
+        }
+    }
+
+    private DumperFactory createDumperFactory() {
+        return outputSinkFactory != null ?
+                new SinkDumperFactory(outputSinkFactory, options) :
+                new InternalDumperFactoryImpl(options);
     }
 }
@@ -0,0 +1,212 @@
+package org.benf.cfr.reader;
+
+import org.benf.cfr.reader.bytecode.analysis.types.ClassSignature;
+import org.benf.cfr.reader.bytecode.analysis.types.InnerClassInfo;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
+import org.benf.cfr.reader.util.collections.SetFactory;
+import org.benf.cfr.reader.util.functors.UnaryFunction;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Decides the order in which the classes of a jar are decompiled, and how they're divided into units
+ * of work for concurrent runs (see option 'localityschedule').
+ *
+ * By default, that's just jar order, one class at a time.  But classes in the same package, and
+ * particularly the same hierarchy, share supertypes, inner classes and accessor targets - so if we're
+ * grouping, we keep an outer class with its inner classes, a package together, and within a package,
+ * classes related by inheritance together, supertypes first.  (Hierarchies which span packages are
+ * only grouped within each package.)  Otherwise groups keep the order in which they first appear.
+ *
+ * A unit is an inheritance cluster, cut into pieces of at most MAX_UNIT classes (inner classes included)
+ * so that one huge hierarchy doesn't end up on a single thread.  An outer class is never separated from
+ * its inner classes, so one with more than MAX_UNIT of them gets a unit to itself.
+ */
+class ClassScheduler {
+    private static final int MAX_UNIT = 16;
+
+    static List<List<JavaTypeInstance>> schedule(List<JavaTypeInstance> types, DCCommonState dcCommonState, boolean group) {
+        List<List<JavaTypeInstance>> res = ListFactory.newList();
+        if (!group) {
+            for (JavaTypeInstance type : types) {
+                res.add(ListFactory.newImmutableList(type));
+            }
+            return res;
+        }
+
+        /*
+         * Outer classes, with their inner classes, in order of first appearance.
+         */
+        Map<JavaTypeInstance, List<JavaTypeInstance>> byOuter = MapFactory.newLinkedLazyMap(new UnaryFunction<JavaTypeInstance, List<JavaTypeInstance>>() {
+            @Override
+            public List<JavaTypeInstance> invoke(JavaTypeInstance arg) {
+                return ListFactory.newList();
+            }
+        });
+        for (JavaTypeInstance type : types) {
+            JavaTypeInstance outer = getOutermost(type);
+            List<JavaTypeInstance> members = byOuter.get(outer);
+            if (outer == type) {
+                members.add(0, type);
+            } else {
+                members.add(type);
+            }
+        }
+
+        Map<String, List<JavaTypeInstance>> byPackage = MapFactory.newLinkedLazyMap(new UnaryFunction<String, List<JavaTypeInstance>>() {
+            @Override
+            public List<JavaTypeInstance> invoke(String arg) {
+                return ListFactory.newList();
+            }
+        });
+        for (JavaTypeInstance outer : byOuter.keySet()) {
+            byPackage.get(getPackage(outer)).add(outer);
+        }
+
+        for (List<JavaTypeInstance> outers : byPackage.values()) {
+            for (List<JavaTypeInstance> cluster : getClusters(outers, dcCommonState)) {
+                List<JavaTypeInstance> unit = ListFactory.newList();
+                int unitClasses = 0;
+                for (JavaTypeInstance outer : cluster) {
+                    List<JavaTypeInstance> members = byOuter.get(outer);
+                    if (unitClasses > 0 && unitClasses + members.size() > MAX_UNIT) {
+                        res.add(unit);
+                        unit = ListFactory.newList();
+                        unitClasses = 0;
+                    }
+                    unit.addAll(members);
+                    unitClasses += members.size();
+                }
+                res.add(unit);
+            }
+        }
+        return res;
+    }
+
+    static List<JavaTypeInstance> flatten(List<List<JavaTypeInstance>> units) {
+        List<JavaTypeInstance> res = ListFactory.newList();
+        for (List<JavaTypeInstance> unit : units) {
+            res.addAll(unit);
+        }
+        return res;
+    }
+
+    /*
+     * Split classes of a package by the inheritance relationships between them, each cluster
+     * ordered supertypes first.
+     */
+    private static List<List<JavaTypeInstance>> getClusters(List<JavaTypeInstance> outers, DCCommonState dcCommonState) {
+        Set<JavaTypeInstance> local = SetFactory.newSet(outers);
+        Map<JavaTypeInstance, List<JavaTypeInstance>> supers = MapFactory.newMap();
+        Map<JavaTypeInstance, JavaTypeInstance> roots = MapFactory.newMap();
+        for (JavaTypeInstance outer : outers) {
+            roots.put(outer, outer);
+        }
+        for (JavaTypeInstance outer : outers) {
+            List<JavaTypeInstance> localSupers = getLocalSupers(outer, local, dcCommonState);
+            supers.put(outer, localSupers);
+            for (JavaTypeInstance sup : localSupers) {
+                JavaTypeInstance a = find(roots, outer);
+                JavaTypeInstance b = find(roots, sup);
+                if (a != b) roots.put(a, b);
+            }
+        }
+
+        Map<JavaTypeInstance, List<JavaTypeInstance>> clusters = MapFactory.newOrderedMap();
+        Set<JavaTypeInstance> seen = SetFactory.newSet();
+        for (JavaTypeInstance outer : outers) {
+            JavaTypeInstance root = find(roots, outer);
+            List<JavaTypeInstance> cluster = clusters.get(root);
+            if (cluster == null) {
+                cluster = ListFactory.newList();
+                clusters.put(root, cluster);
+            }
+            addSupersFirst(outer, supers, seen, cluster);
+        }
+        return ListFactory.newList(clusters.values());
+    }
+
+    private static JavaTypeInstance find(Map<JavaTypeInstance, JavaTypeInstance> roots, JavaTypeInstance type) {
+        JavaTypeInstance root = type;
+        while (roots.get(root) != root) {
+            root = roots.get(root);
+        }
+        while (type != root) {
+            JavaTypeInstance next = roots.get(type);
+            roots.put(type, root);
+            type = next;
+        }
+        return root;
+    }
+
+    /*
+     * Class files are loaded for their supertypes here - they'd be loaded in a moment anyway.
+     * Anything which can't be loaded is left for the analysis to complain about.
+     */
+    private static List<JavaTypeInstance> getLocalSupers(JavaTypeInstance type, Set<JavaTypeInstance> local, DCCommonState dcCommonState) {
+        List<JavaTypeInstance> res = ListFactory.newList();
+        ClassFile classFile = dcCommonState.getClassFileOrNull(type);
+        if (classFile == null) return res;
+        ClassSignature signature = classFile.getClassSignature();
+        if (signature == null) return res;
+        List<JavaTypeInstance> candidates = ListFactory.newList();
+        if (signature.getSuperClass() != null) candidates.add(signature.getSuperClass());
+        candidates.addAll(signature.getInterfaces());
+        for (JavaTypeInstance candidate : candidates) {
+            JavaTypeInstance sup = getOutermost(candidate.getDeGenerifiedType());
+            if (sup != type && local.contains(sup)) res.add(sup);
+        }
+        return res;
+    }
+
+    /*
+     * Iterative, as hierarchies can be deep.  Cycles (which are illegal, but this is a decompiler) are
+     * broken by marking on the way in.
+     */
+    private static void addSupersFirst(JavaTypeInstance type, Map<JavaTypeInstance, List<JavaTypeInstance>> supers, Set<JavaTypeInstance> seen, List<JavaTypeInstance> into) {
+        if (!seen.add(type)) return;
+        List<JavaTypeInstance> stack = ListFactory.newList();
+        List<Integer> positions = ListFactory.newList();
+        stack.add(type);
+        positions.add(0);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            JavaTypeInstance curr = stack.get(top);
+            List<JavaTypeInstance> currSupers = supers.get(curr);
+            int pos = positions.get(top);
+            if (pos < currSupers.size()) {
+                positions.set(top, pos + 1);
+                JavaTypeInstance sup = currSupers.get(pos);
+                if (seen.add(sup)) {
+                    stack.add(sup);
+                    positions.add(0);
+                }
+                continue;
+            }
+            stack.remove(top);
+            positions.remove(top);
+            into.add(curr);
+        }
+    }
+
+    private static JavaTypeInstance getOutermost(JavaTypeInstance type) {
+        InnerClassInfo ici = type.getInnerClassHereInfo();
+        while (ici != null && ici.isInnerClass()) {
+            type = ici.getOuterClass();
+            ici = type.getInnerClassHereInfo();
+        }
+        return type;
+    }
+
+    private static String getPackage(JavaTypeInstance type) {
+        String name = type.getRawName();
+        int idx = name.lastIndexOf('.');
+        return idx == -1 ? "" : name.substring(0, idx);
+    }
+}
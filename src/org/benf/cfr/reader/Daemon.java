@@ -0,0 +1,307 @@
+package org.benf.cfr.reader;
+
+import org.benf.cfr.reader.api.OutputSinkFactory;
+import org.benf.cfr.reader.api.SinkReturns;
+import org.benf.cfr.reader.state.ClassFileSourceImpl;
+import org.benf.cfr.reader.util.ConfusedCFRException;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Long running process, for callers (eg IDEs) which want to decompile one class at a time without
+ * paying for a cold start on each one.
+ *
+ * What's kept between requests is the class file source - so the classpath index, open jars, and
+ * classes fetched from the running JRE - along with the JIT's work.  Analysis state (DCCommonState)
+ * is still discarded between paths, exactly as CfrDriverImpl does, as parsed ClassFiles are bound to
+ * the state that loaded them, and are modified by analysis.
+ *
+ * Protocol is deliberately trivial - one request per connection.  The first line is the daemon's token
+ * (see TokenFile), then the request, as a single line:
+ *
+ * analyse <path>   - decompiled output (and any exceptions) is written back, then the connection closed.
+ * invalidate       - discard what we know about the classpath and jars, as they've changed on disk.
+ * shutdown         - stop listening.
+ *
+ * We only listen on the loopback interface, and handle one request at a time.  Listening locally isn't
+ * enough to keep other users of the machine out, hence the token.  And as a connection which says nothing would
+ * hold up everyone else, we stop waiting for the token and request after REQUEST_TIMEOUT_MS.
+ */
+class Daemon {
+    private static final String UTF8 = "UTF-8";
+    private static final int REQUEST_TIMEOUT_MS = 10000;
+
+    private final Options options;
+    private final ClassFileSourceImpl classFileSource;
+    private final String token;
+
+    private Daemon(Options options) {
+        this.options = options;
+        this.token = newToken();
+        this.classFileSource = CfrDriverImpl.createClassFileSource(options);
+        this.classFileSource.retainRuntimeClasses();
+    }
+
+    static void run(Options options) {
+        new Daemon(options).serve(options.getOption(OptionsImpl.DAEMON_PORT));
+    }
+
+    private void serve(int port) {
+        TokenFile tokenFile;
+        ServerSocket serverSocket;
+        try {
+            tokenFile = TokenFile.create(options.getOption(OptionsImpl.DAEMON_TOKEN_FILE), token);
+        } catch (IOException e) {
+            throw new ConfusedCFRException(e);
+        }
+        try {
+            serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+        } catch (IOException e) {
+            tokenFile.delete();
+            throw new ConfusedCFRException(e);
+        }
+        // Callers which asked for any free port need to know which one they got.
+        System.out.println("CFR daemon listening on port " + serverSocket.getLocalPort());
+        System.out.println("CFR daemon token in " + tokenFile.getPath());
+        System.out.flush();
+        try {
+            boolean running = true;
+            while (running) {
+                Socket socket = serverSocket.accept();
+                try {
+                    // We handle one connection at a time, so one which never sends its request can't hold us up.
+                    socket.setSoTimeout(REQUEST_TIMEOUT_MS);
+                    running = handle(socket);
+                } catch (IOException e) {
+                    // The client's gone away (or has gone quiet, and is treated as if it had) - nothing to tell them.
+                } finally {
+                    socket.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new ConfusedCFRException(e);
+        } finally {
+            classFileSource.close();
+            tokenFile.delete();
+            try {
+                serverSocket.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /*
+     * Returns false if we've been asked to stop.
+     */
+    private boolean handle(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF8));
+        String offered = reader.readLine();
+        if (offered == null) return true;
+        if (!MessageDigest.isEqual(offered.trim().getBytes(UTF8), token.getBytes(UTF8))) {
+            writer.write("Bad token\n");
+            writer.flush();
+            return true;
+        }
+        String request = reader.readLine();
+        if (request == null) return true;
+        request = request.trim();
+        int idx = request.indexOf(' ');
+        String command = idx == -1 ? request : request.substring(0, idx);
+        String argument = idx == -1 ? "" : request.substring(idx + 1).trim();
+        boolean running = true;
+        if (command.equals("analyse") && !argument.isEmpty()) {
+            analyse(argument, writer);
+        } else if (command.equals("invalidate")) {
+            classFileSource.invalidate();
+            writer.write("OK\n");
+        } else if (command.equals("shutdown")) {
+            writer.write("OK\n");
+            running = false;
+        } else {
+            writer.write("Unknown request '" + request + "'\n");
+        }
+        writer.flush();
+        return running;
+    }
+
+    private void analyse(String path, Writer writer) {
+        List<String> toAnalyse = ListFactory.newList();
+        toAnalyse.add(path);
+        CfrDriverImpl driver = new CfrDriverImpl(classFileSource, new ConnectionSinkFactory(writer), options);
+        try {
+            driver.analyseRetainingSource(toAnalyse);
+        } catch (RuntimeException e) {
+            // Don't let one bad request take the daemon down.
+            new SinkWriter<String>(writer).write("/* Exception analysing " + path + ": " + e + " */");
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Anyone who can read the token can use us, so it's only readable by the user running the daemon.
+     *
+     * Java 6 can't create a file with given permissions - for a moment after it's created, a file is only
+     * protected by the umask, and someone who opens it then can read it later.  So unless we've been told
+     * where to put it, we make a private directory first, and put it in there.
+     */
+    private static class TokenFile {
+        private final File file;
+        // Null if we were told where to put the file.
+        private final File privateDir;
+
+        private TokenFile(File file, File privateDir) {
+            this.file = file;
+            this.privateDir = privateDir;
+        }
+
+        static TokenFile create(String path, String token) throws IOException {
+            File file;
+            File privateDir = null;
+            if (path == null) {
+                privateDir = File.createTempFile("cfr-daemon", "");
+                if (!privateDir.delete() || !privateDir.mkdir()) {
+                    throw new IOException("Can't create directory " + privateDir);
+                }
+                restrictToOwner(privateDir);
+                privateDir.deleteOnExit();
+                file = new File(privateDir, "token");
+                if (!file.createNewFile()) throw new IOException("Can't create " + file);
+            } else {
+                file = new File(path);
+                // Start afresh, so whatever permissions (or readers) an old one had don't carry over.
+                if (file.exists() && !file.delete()) throw new IOException("Can't replace " + file);
+                if (!file.createNewFile()) throw new IOException(file + " was recreated while we were replacing it");
+            }
+            file.deleteOnExit();
+            restrictToOwner(file);
+            FileOutputStream os = new FileOutputStream(file);
+            try {
+                os.write((token + "\n").getBytes(UTF8));
+            } finally {
+                os.close();
+            }
+            return new TokenFile(file, privateDir);
+        }
+
+        private static void restrictToOwner(File file) throws IOException {
+            // Windows has no 'everyone but the owner' - and the temporary directory is private to the user there.
+            if (File.separatorChar == '\\') return;
+            boolean restricted = file.setReadable(false, false) && file.setReadable(true, true) &&
+                    file.setWritable(false, false) && file.setWritable(true, true) &&
+                    file.setExecutable(false, false);
+            if (restricted && file.isDirectory()) restricted = file.setExecutable(true, true);
+            if (!restricted) throw new IOException("Can't restrict access to " + file);
+        }
+
+        String getPath() {
+            return file.getPath();
+        }
+
+        void delete() {
+            file.delete();
+            if (privateDir != null) privateDir.delete();
+        }
+    }
+
+    /*
+     * Java and exceptions go back to the caller - summary and progress are of no interest here.
+     */
+    private static class ConnectionSinkFactory implements OutputSinkFactory {
+        private final Writer writer;
+
+        private ConnectionSinkFactory(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public List<SinkClass> getSupportedSinks(SinkType sinkType, Collection<SinkClass> available) {
+            // The plain string exception sink only gets the comment, which is frequently null.
+            if (sinkType == SinkType.EXCEPTION && available.contains(SinkClass.EXCEPTION_MESSAGE)) {
+                return Collections.singletonList(SinkClass.EXCEPTION_MESSAGE);
+            }
+            return Collections.singletonList(SinkClass.STRING);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Sink<T> getSink(SinkType sinkType, SinkClass sinkClass) {
+            switch (sinkType) {
+                case JAVA:
+                    return new SinkWriter<T>(writer);
+                case EXCEPTION:
+                    if (sinkClass == SinkClass.EXCEPTION_MESSAGE) {
+                        return (Sink<T>) new ExceptionWriter(writer);
+                    }
+                    return new SinkWriter<T>(writer);
+                default:
+                    return new Sink<T>() {
+                        @Override
+                        public void write(T sinkable) {
+                        }
+                    };
+            }
+        }
+    }
+
+    private static class ExceptionWriter implements OutputSinkFactory.Sink<SinkReturns.ExceptionMessage> {
+        private final SinkWriter<String> writer;
+
+        private ExceptionWriter(Writer writer) {
+            this.writer = new SinkWriter<String>(writer);
+        }
+
+        @Override
+        public void write(SinkReturns.ExceptionMessage sinkable) {
+            String message = sinkable.getMessage();
+            Exception e = sinkable.getThrownException();
+            writer.write("/* Exception analysing " + sinkable.getPath() + (message == null ? "" : " - " + message)
+                    + (e == null ? "" : ": " + e) + " */");
+        }
+    }
+
+    private static class SinkWriter<T> implements OutputSinkFactory.Sink<T> {
+        private final Writer writer;
+
+        private SinkWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(T sinkable) {
+            try {
+                writer.write(String.valueOf(sinkable));
+                writer.write("\n");
+            } catch (IOException e) {
+                throw new ConfusedCFRException(e);
+            }
+        }
+    }
+}
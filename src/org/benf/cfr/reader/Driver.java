@@ -1,5 +1,6 @@
 package org.benf.cfr.reader;
 
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
 import org.benf.cfr.reader.bytecode.analysis.types.InnerClassInfo;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
 import org.benf.cfr.reader.entities.ClassFile;
@@ -8,11 +9,15 @@ import org.benf.cfr.reader.mapping.MappingFactory;
 import org.benf.cfr.reader.mapping.ObfuscationMapping;
 import org.benf.cfr.reader.relationship.MemberNameResolver;
 import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.DecompilationCache;
 import org.benf.cfr.reader.state.TypeUsageCollectingDumper;
 import org.benf.cfr.reader.state.TypeUsageInformation;
+import org.benf.cfr.reader.state.TypeUsageInformationEmpty;
 import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.CfrVersionInfo;
+import org.benf.cfr.reader.util.ConfusedCFRException;
+import org.benf.cfr.reader.util.DaemonThreadFactory;
 import org.benf.cfr.reader.util.MiscConstants;
 import org.benf.cfr.reader.util.MiscUtils;
 import org.benf.cfr.reader.util.collections.Functional;
@@ -27,14 +32,23 @@ import org.benf.cfr.reader.util.output.DumperFactory;
 import org.benf.cfr.reader.util.output.ExceptionDumper;
 import org.benf.cfr.reader.util.output.IllegalIdentifierDump;
 import org.benf.cfr.reader.util.output.NopSummaryDumper;
+import org.benf.cfr.reader.util.output.OutputCapture;
 import org.benf.cfr.reader.util.output.ProgressDumper;
+import org.benf.cfr.reader.util.output.StreamDumper;
 import org.benf.cfr.reader.util.output.SummaryDumper;
 import org.benf.cfr.reader.util.output.ToStringDumper;
 
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 class Driver {
 
@@ -79,18 +93,29 @@ class Driver {
                 MemberNameResolver.resolveNames(dcCommonState, ListFactory.newList(dcCommonState.getClassCache().getLoadedTypes()));
             }
 
+            String methname = options.getOption(OptionsImpl.METHODNAME);
+            boolean trackLoc = options.getOption(OptionsImpl.TRACK_BYTECODE_LOC);
+            // Only whole classes are worth caching, and line number tracking has output of its own.
+            String cacheKey = (methname == null && !trackLoc) ? getCacheKey(c, dcCommonState) : null;
+            String cached = getCached(cacheKey, dcCommonState);
+            if (cached != null) {
+                d = dumpCachedType(c.getClassType(), cached, dumperFactory, summaryDumper, illegalIdentifierDump);
+                return;
+            }
+            OutputCapture capture = cacheKey == null ? null : new OutputCapture();
+
             TypeUsageCollectingDumper collectingDumper = new TypeUsageCollectingDumper(options, c);
             c.analyseTop(dcCommonState, collectingDumper);
 
             TypeUsageInformation typeUsageInformation = collectingDumper.getRealTypeUsageInformation();
 
             d = dumperFactory.getNewTopLevelDumper(c.getClassType(), summaryDumper, typeUsageInformation, illegalIdentifierDump);
+            if (capture != null) capture.attach(d);
             d = dcCommonState.getObfuscationMapping().wrap(d);
-            if (options.getOption(OptionsImpl.TRACK_BYTECODE_LOC)) {
+            if (trackLoc) {
                 d = dumperFactory.wrapLineNoDumper(d);
             }
 
-            String methname = options.getOption(OptionsImpl.METHODNAME);
             if (methname == null) {
                 c.dump(d);
             } else {
@@ -103,6 +128,7 @@ class Driver {
                 }
             }
             d.print("");
+            storeCaptured(cacheKey, capture, dcCommonState);
         } catch (Exception e) {
             ed.noteException(path, null, e);
         } finally {
@@ -117,6 +143,7 @@ class Driver {
         dcCommonState = new DCCommonState(dcCommonState, mapping);
 
         SummaryDumper summaryDumper = null;
+        MemoryBudget memoryBudget = MemoryBudget.create(options);
         try {
             ProgressDumper progressDumper = dumperFactory.getProgressDumper();
             summaryDumper = dumperFactory.getSummaryDumper();
@@ -135,7 +162,10 @@ class Driver {
                 versionsSeen.add(forVersion);
                 List<Integer> localVersionsSeen = ListFactory.newList(versionsSeen);
                 List<JavaTypeInstance> types = entry.getValue();
-                doJarVersionTypes(forVersion, localVersionsSeen, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, progressDumper, types);
+                doJarVersionTypes(forVersion, localVersionsSeen, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, progressDumper, memoryBudget, types);
+            }
+            if (memoryBudget != null) {
+                summaryDumper.notify(memoryBudget.toString());
             }
         } catch (Exception e) {
             dumperFactory.getExceptionDumper().noteException(path, "Exception analysing jar", e);
@@ -184,9 +214,9 @@ class Driver {
         return collisions;
     }
 
-    private static void doJarVersionTypes(int forVersion, final List<Integer> versionsSeen, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, ProgressDumper progressDumper, List<JavaTypeInstance> types) {
+    private static void doJarVersionTypes(int forVersion, final List<Integer> versionsSeen, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, ProgressDumper progressDumper, MemoryBudget memoryBudget, List<JavaTypeInstance> types) {
         Options options = dcCommonState.getOptions();
-        final boolean lomem = options.getOption(OptionsImpl.LOMEM);
+        final boolean lomem = options.getOption(OptionsImpl.LOMEM) || memoryBudget != null;
         final Predicate<String> matcher = MiscUtils.mkRegexFilter(options.getOption(OptionsImpl.JAR_FILTER), true);
         final boolean silent = options.getOption(OptionsImpl.SILENT);
 
@@ -230,6 +260,16 @@ class Driver {
                 options.getOption(OptionsImpl.RENAME_ENUM_MEMBERS)) {
             MemberNameResolver.resolveNames(dcCommonState, types);
         }
+        if (memoryBudget != null) {
+            memoryBudget.setTargets(types);
+        }
+        List<List<JavaTypeInstance>> units = ClassScheduler.schedule(types, dcCommonState, options.getOption(OptionsImpl.LOCALITY_SCHEDULE));
+        int threads = options.getOption(OptionsImpl.THREADS);
+        if (threads > 1) {
+            doJarVersionTypesConcurrently(threads, lomem, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, progressDumper, memoryBudget, units);
+            return;
+        }
+        types = ClassScheduler.flatten(units);
         /*
          * If we're working on a case insensitive file system (OH COME ON!) then make sure that
          * we don't have any collisions.
@@ -252,29 +292,219 @@ class Driver {
                     c.loadInnerClasses(dcCommonState);
                 }
 
+                String cacheKey = getCacheKey(c, dcCommonState);
+                String cached = getCached(cacheKey, dcCommonState);
+                if (cached != null) {
+                    d = dumpCachedType(dcCommonState.getObfuscationMapping().get(c.getClassType()), cached, dumperFactory, summaryDumper, illegalIdentifierDump);
+                    continue;
+                }
+                OutputCapture capture = cacheKey == null ? null : new OutputCapture();
+
                 TypeUsageCollectingDumper collectingDumper = new TypeUsageCollectingDumper(options, c);
                 c.analyseTop(dcCommonState, collectingDumper);
 
-                JavaTypeInstance classType = c.getClassType();
-                classType = dcCommonState.getObfuscationMapping().get(classType);
                 TypeUsageInformation typeUsageInformation = collectingDumper.getRealTypeUsageInformation();
-                d = dumperFactory.getNewTopLevelDumper(classType, summaryDumper, typeUsageInformation, illegalIdentifierDump);
-                d = dcCommonState.getObfuscationMapping().wrap(d);
-
-                c.dump(d);
-                d.newln();
-                d.newln();
-                if (lomem) {
-                    c.releaseCode();
-                }
+                d = getTopLevelDumper(c, typeUsageInformation, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, capture);
+                dumpAnalysedType(c, d, lomem);
+                storeCaptured(cacheKey, capture, dcCommonState);
             } catch (Dumper.CannotCreate e) {
                 throw e;
             } catch (RuntimeException e) {
                 d.print(e.toString()).newln().newln().newln();
             } finally {
-                if (d != null) d.close();
+                if (d != null) {
+                    d.close();
+                    if (memoryBudget != null) memoryBudget.emitted(dcCommonState);
+                }
             }
 
         }
     }
+
+    private static Dumper getTopLevelDumper(ClassFile c, TypeUsageInformation typeUsageInformation, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, OutputCapture capture) {
+        JavaTypeInstance classType = c.getClassType();
+        classType = dcCommonState.getObfuscationMapping().get(classType);
+        Dumper d = dumperFactory.getNewTopLevelDumper(classType, summaryDumper, typeUsageInformation, illegalIdentifierDump);
+        if (capture != null) capture.attach(d);
+        return dcCommonState.getObfuscationMapping().wrap(d);
+    }
+
+    /*
+     * Null if we're not using a decompilation cache, or can't for this class.
+     */
+    private static String getCacheKey(ClassFile c, DCCommonState dcCommonState) {
+        DecompilationCache cache = dcCommonState.getDecompilationCache();
+        if (cache == null) return null;
+        return cache.getKey(c, dcCommonState);
+    }
+
+    private static String getCached(String cacheKey, DCCommonState dcCommonState) {
+        if (cacheKey == null) return null;
+        return dcCommonState.getDecompilationCache().get(cacheKey);
+    }
+
+    private static void storeCaptured(String cacheKey, OutputCapture capture, DCCommonState dcCommonState) {
+        if (cacheKey == null || capture == null) return;
+        String text = capture.getText();
+        if (text == null) return;
+        dcCommonState.getDecompilationCache().put(cacheKey, text);
+    }
+
+    /*
+     * Output from the cache is already fully rendered (including any renaming), so doesn't need
+     * type usage information, or wrapping.
+     */
+    private static Dumper dumpCachedType(JavaTypeInstance classType, String cached, DumperFactory dumperFactory, SummaryDumper summaryDumper, IllegalIdentifierDump illegalIdentifierDump) {
+        Dumper d = dumperFactory.getNewTopLevelDumper(classType, summaryDumper, TypeUsageInformationEmpty.INSTANCE, illegalIdentifierDump);
+        if (d instanceof StreamDumper) {
+            ((StreamDumper) d).writeCaptured(cached);
+        } else {
+            d.print(cached);
+        }
+        return d;
+    }
+
+    private static void dumpAnalysedType(ClassFile c, Dumper d, boolean lomem) {
+        c.dump(d);
+        d.newln();
+        d.newln();
+        if (lomem) {
+            c.releaseCode();
+        }
+    }
+
+    /*
+     * Analysis (which is where nearly all the time goes) happens on a pool of workers, but results are
+     * consumed strictly in the order of types, so that progress, summary and stream output are emitted
+     * exactly as they would be by the sequential loop above.
+     *
+     * Each unit from the ClassScheduler is analysed by one worker, in order.
+     *
+     * Workers are only allowed to run a limited distance ahead of the consumer, otherwise
+     * we'd retain the analysis of the entire jar.
+     */
+    private static void doJarVersionTypesConcurrently(int threads, boolean lomem, final DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, ProgressDumper progressDumper, MemoryBudget memoryBudget, List<List<JavaTypeInstance>> units) {
+        Options options = dcCommonState.getOptions();
+        final boolean silent = options.getOption(OptionsImpl.SILENT);
+        final boolean innerClasses = options.getOption(OptionsImpl.DECOMPILE_INNER_CLASSES);
+        int window = threads * 4;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+        try {
+            LinkedList<Pair<List<JavaTypeInstance>, Future<List<AnalysedType>>>> pending = ListFactory.newLinkedList();
+            int pendingTypes = 0;
+            Iterator<List<JavaTypeInstance>> unitIterator = units.iterator();
+            while (true) {
+                while (pendingTypes < window && unitIterator.hasNext()) {
+                    final List<JavaTypeInstance> unit = unitIterator.next();
+                    pending.add(Pair.make(unit, executor.submit(new Callable<List<AnalysedType>>() {
+                        @Override
+                        public List<AnalysedType> call() {
+                            List<AnalysedType> res = ListFactory.newList();
+                            for (JavaTypeInstance type : unit) {
+                                res.add(analyseType(type, innerClasses, dcCommonState));
+                            }
+                            return res;
+                        }
+                    })));
+                    pendingTypes += unit.size();
+                }
+                if (pending.isEmpty()) break;
+                Pair<List<JavaTypeInstance>, Future<List<AnalysedType>>> next = pending.removeFirst();
+                List<JavaTypeInstance> unitTypes = next.getFirst();
+                pendingTypes -= unitTypes.size();
+                List<AnalysedType> unitAnalysed = getAnalysed(next.getSecond());
+                for (int x = 0, len = unitTypes.size(); x < len; ++x) {
+                    AnalysedType analysed = unitAnalysed.get(x);
+                    if (analysed == null) {
+                        continue;
+                    }
+                    if (!silent) {
+                        progressDumper.analysingType(dcCommonState.getObfuscationMapping().get(unitTypes.get(x)));
+                    }
+                    if (analysed.failure != null) {
+                        // As with the sequential loop, a failure before we have a real dumper leaves nothing to emit.
+                        continue;
+                    }
+                    Dumper d = new ToStringDumper();  // Sentinel dumper.
+                    try {
+                        if (analysed.cached != null) {
+                            d = dumpCachedType(dcCommonState.getObfuscationMapping().get(analysed.classFile.getClassType()), analysed.cached, dumperFactory, summaryDumper, illegalIdentifierDump);
+                            continue;
+                        }
+                        OutputCapture capture = analysed.cacheKey == null ? null : new OutputCapture();
+                        d = getTopLevelDumper(analysed.classFile, analysed.typeUsageInformation, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, capture);
+                        dumpAnalysedType(analysed.classFile, d, lomem);
+                        storeCaptured(analysed.cacheKey, capture, dcCommonState);
+                    } catch (Dumper.CannotCreate e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        d.print(e.toString()).newln().newln().newln();
+                    } finally {
+                        d.close();
+                        // Workers in flight may still have their own references to evicted library classes - that's
+                        // fine, anyone asking afresh just gets a reloaded copy.
+                        if (memoryBudget != null) memoryBudget.emitted(dcCommonState);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+     * Returns null if this type is an inner class, and should not be dumped explicitly.
+     */
+    private static AnalysedType analyseType(JavaTypeInstance type, boolean innerClasses, DCCommonState dcCommonState) {
+        try {
+            ClassFile c = dcCommonState.getClassFile(type);
+            if (c.isInnerClass()) {
+                return null;
+            }
+            if (innerClasses) {
+                c.loadInnerClasses(dcCommonState);
+            }
+            String cacheKey = getCacheKey(c, dcCommonState);
+            String cached = getCached(cacheKey, dcCommonState);
+            if (cached != null) {
+                return new AnalysedType(c, null, cacheKey, cached, null);
+            }
+            TypeUsageCollectingDumper collectingDumper = new TypeUsageCollectingDumper(dcCommonState.getOptions(), c);
+            c.analyseTop(dcCommonState, collectingDumper);
+            return new AnalysedType(c, collectingDumper.getRealTypeUsageInformation(), cacheKey, null, null);
+        } catch (RuntimeException e) {
+            return new AnalysedType(null, null, null, null, e);
+        }
+    }
+
+    private static <T> T getAnalysed(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfusedCFRException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) throw (Error) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new ConfusedCFRException(e);
+        }
+    }
+
+    private static class AnalysedType {
+        private final ClassFile classFile;
+        private final TypeUsageInformation typeUsageInformation;
+        private final String cacheKey;
+        private final String cached;
+        private final RuntimeException failure;
+
+        private AnalysedType(ClassFile classFile, TypeUsageInformation typeUsageInformation, String cacheKey, String cached, RuntimeException failure) {
+            this.classFile = classFile;
+            this.typeUsageInformation = typeUsageInformation;
+            this.cacheKey = cacheKey;
+            this.cached = cached;
+            this.failure = failure;
+        }
+    }
 }
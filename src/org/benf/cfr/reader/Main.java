@@ -32,7 +32,7 @@ public class Main {
             Pair<List<String>, Options> processedArgs = getOptParser.parse(args, OptionsImpl.getFactory());
             files = processedArgs.getFirst();
             options = processedArgs.getSecond();
-            if (files.size() == 0) {
+            if (files.size() == 0 && !options.optionIsSet(OptionsImpl.DAEMON_PORT)) {
                 throw new IllegalArgumentException("Insufficient unqualified parameters - provide at least one filename.");
             }
         } catch (Exception e) {
@@ -40,11 +40,16 @@ public class Main {
             System.exit(1);
         }
 
-        if (options.optionIsSet(OptionsImpl.HELP) || files.isEmpty()) {
+        if (options.optionIsSet(OptionsImpl.HELP)) {
             getOptParser.showOptionHelp(OptionsImpl.getFactory(), options, OptionsImpl.HELP);
             return;
         }
 
+        if (options.optionIsSet(OptionsImpl.DAEMON_PORT)) {
+            Daemon.run(options);
+            return;
+        }
+
         CfrDriver cfrDriver = new CfrDriver.Builder().withBuiltOptions(options).build();
         cfrDriver.analyse(files);
     }
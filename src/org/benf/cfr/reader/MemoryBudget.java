@@ -0,0 +1,122 @@
+package org.benf.cfr.reader;
+
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.util.collections.SetFactory;
+import org.benf.cfr.reader.util.functors.Predicate;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Streaming a jar within a heap budget (see option 'membudget').
+ *
+ * Every class file we load stays in the DCCommonState cache until the jar is finished, so memory grows
+ * with the size of the jar (and its classpath).  Library classes are often only looked at for a few
+ * types - once we're over budget, we drop them from the cache, and if they're needed again, they're
+ * simply reloaded.
+ *
+ * Classes from the jar itself are kept - even once emitted - as analysing a class leaves information
+ * in its class file which others depend on.  (Hidden outer-this constructor arguments of inner classes,
+ * renamed members...)  A reloaded copy wouldn't have that, and the output would change.  Method bodies
+ * are released as we go, as with lomem.
+ *
+ * 'Over budget' is judged on heap in use after the last collection, as otherwise we'd be counting
+ * garbage.  For the same reason, we don't evict again until there's been another collection.
+ */
+class MemoryBudget {
+    private static final long MB = 1024 * 1024;
+
+    private final long budget;
+    private final List<MemoryPoolMXBean> heapPools;
+    private final List<GarbageCollectorMXBean> collectors;
+    private final Set<String> targets = SetFactory.newSet();
+    private long collectionsAtLastEviction = -1;
+    private int evictions;
+    private int evicted;
+
+    private MemoryBudget(long budget) {
+        this.budget = budget;
+        this.heapPools = ManagementFactory.getMemoryPoolMXBeans();
+        this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (MemoryPoolMXBean pool : heapPools) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    /*
+     * Null if there's no budget.
+     */
+    static MemoryBudget create(Options options) {
+        int budget = options.getOption(OptionsImpl.MEMORY_BUDGET);
+        if (budget <= 0) return null;
+        return new MemoryBudget(budget * MB);
+    }
+
+    /*
+     * The classes we're emitting - these are never evicted.
+     */
+    void setTargets(Collection<JavaTypeInstance> types) {
+        targets.clear();
+        for (JavaTypeInstance type : types) {
+            targets.add(DCCommonState.getClassFilePath(type));
+        }
+    }
+
+    /*
+     * Called between classes, when nothing (on this thread, anyway) is using a library class file.
+     */
+    void emitted(DCCommonState dcCommonState) {
+        if (!isOverBudget()) return;
+        evictions++;
+        evicted += dcCommonState.evictClassFiles(new Predicate<String>() {
+            @Override
+            public boolean test(String in) {
+                return targets.contains(in);
+            }
+        });
+    }
+
+    private boolean isOverBudget() {
+        long collections = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            collections += Math.max(0, collector.getCollectionCount());
+        }
+        if (collections == collectionsAtLastEviction) return false;
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) used += usage.getUsed();
+        }
+        if (used <= budget) return false;
+        collectionsAtLastEviction = collections;
+        return true;
+    }
+
+    /*
+     * Sum of the peaks of each heap pool - as these don't necessarily peak together, this may overstate
+     * slightly, but it's the figure to compare against -Xmx.
+     */
+    private long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    @Override
+    public String toString() {
+        return "Peak heap " + getPeakHeap() / MB + "MB (budget " + budget / MB + "MB), evicted " + evicted + " class files in " + evictions + " passes";
+    }
+}
@@ -102,6 +102,11 @@ public class PluginRunner {
             return new StdErrExceptionDumper();
         }
 
+        @Override
+        public InstrumentationDumper getInstrumentationDumper() {
+            return new FileInstrumentationDumper(options);
+        }
+
         @Override
         public DumperFactory getFactoryWithPrefix(String prefix, int version) {
             return this;
@@ -58,7 +58,9 @@ public interface OutputSinkFactory {
         /** This sink will receive any exceptions that occur */
         EXCEPTION,
         /** This sink will receive line number information */
-        LINENUMBER
+        LINENUMBER,
+        /** This sink will receive per pass timings as JSON, if requested with option 'instrumentpasses' */
+        INSTRUMENTATION
     }
 
     /**
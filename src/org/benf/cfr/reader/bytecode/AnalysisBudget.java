@@ -0,0 +1,112 @@
+package org.benf.cfr.reader.bytecode;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+/*
+ * Limits on how much effort we'll put into a single method (and a single class) before giving up on it
+ * (see options 'methodtimelimit', 'methodsizelimit', 'classtimelimit' and 'classsizelimit').
+ *
+ * Some (usually obfuscated) methods will keep the recovery passes busy for minutes - or blow up in JSR
+ * inlining or topological sorting.  That's bad enough, but in a jar it holds up everything else too.
+ * Analysis checks in with its budget at the end of each stage (and in the loops which have been seen to
+ * run away) - once it's spent, we stop, and the method is emitted as a failure, just as if it had thrown.
+ *
+ * 'Size' is the number of statements in the method as we go, so it catches code which is being copied
+ * out of control.  For a class, it's the total number of instructions in the methods we've started on.
+ *
+ * A method budget is checked concurrently by speculative recovery passes, so it holds no state which
+ * changes - whether a check passes only depends on the clock and the statement count it's given.
+ */
+public class AnalysisBudget {
+    public static final AnalysisBudget NONE = new AnalysisBudget(null, 0, 0, 0);
+
+    private final ClassBudget classBudget;
+    private final long deadline;
+    private final int sizeLimit;
+    private final int classSize;
+
+    private AnalysisBudget(ClassBudget classBudget, long deadline, int sizeLimit, int classSize) {
+        this.classBudget = classBudget;
+        this.deadline = deadline;
+        this.sizeLimit = sizeLimit;
+        this.classSize = classSize;
+    }
+
+    /*
+     * Budget for a method of the class which owns classBudget, with instrCount instructions.
+     */
+    static AnalysisBudget create(Options options, ClassBudget classBudget, int instrCount) {
+        if (classBudget == null) return NONE;
+        long methodTimeLimit = options.getOption(OptionsImpl.METHOD_TIME_LIMIT);
+        int sizeLimit = options.getOption(OptionsImpl.METHOD_SIZE_LIMIT);
+        if (methodTimeLimit <= 0 && sizeLimit <= 0 && !classBudget.isLimited()) return NONE;
+        long deadline = 0;
+        if (methodTimeLimit > 0) {
+            deadline = System.nanoTime() + methodTimeLimit * 1000000L;
+        }
+        if (classBudget.deadline != 0 && (deadline == 0 || classBudget.deadline - deadline < 0)) {
+            deadline = classBudget.deadline;
+        }
+        return new AnalysisBudget(classBudget, deadline, sizeLimit, classBudget.charge(instrCount));
+    }
+
+    boolean isOutOfTime() {
+        return deadline != 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    public void checkTime() {
+        if (isOutOfTime()) {
+            throw new ExceededException(deadline == classBudget.deadline ? "Class time limit exceeded" : "Method time limit exceeded");
+        }
+    }
+
+    public void check(int statements) {
+        if (this == NONE) return;
+        checkTime();
+        if (sizeLimit > 0 && statements > sizeLimit) {
+            throw new ExceededException("Method size limit exceeded (" + statements + " statements)");
+        }
+        if (classBudget.sizeLimit > 0 && classSize > classBudget.sizeLimit) {
+            throw new ExceededException("Class size limit exceeded (" + classSize + " instructions)");
+        }
+    }
+
+    /*
+     * One per class - shared by the budgets of its methods.  The clock starts when we begin analysing
+     * the first of them.
+     */
+    public static class ClassBudget {
+        private final long deadline;
+        private final int sizeLimit;
+        private int size;
+
+        private ClassBudget(long deadline, int sizeLimit) {
+            this.deadline = deadline;
+            this.sizeLimit = sizeLimit;
+        }
+
+        public static ClassBudget create(Options options) {
+            long timeLimit = options.getOption(OptionsImpl.CLASS_TIME_LIMIT);
+            int sizeLimit = options.getOption(OptionsImpl.CLASS_SIZE_LIMIT);
+            long deadline = timeLimit <= 0 ? 0 : System.nanoTime() + timeLimit * 1000000L;
+            return new ClassBudget(deadline, sizeLimit);
+        }
+
+        private boolean isLimited() {
+            return deadline != 0 || sizeLimit > 0;
+        }
+
+        private synchronized int charge(int instrCount) {
+            size += instrCount;
+            return size;
+        }
+    }
+
+    public static class ExceededException extends ConfusedCFRException {
+        ExceededException(String s) {
+            super(s);
+        }
+    }
+}
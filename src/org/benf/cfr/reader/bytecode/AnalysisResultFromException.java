@@ -10,9 +10,14 @@ public class AnalysisResultFromException implements AnalysisResult {
     private final DecompilerComments comments;
 
     public AnalysisResultFromException(Exception e) {
-        this.code = new Op04StructuredStatement(new StructuredFakeDecompFailure(e));
+        boolean exceeded = e instanceof AnalysisBudget.ExceededException;
+        this.code = new Op04StructuredStatement(new StructuredFakeDecompFailure(e, exceeded));
         this.comments = new DecompilerComments();
-        comments.addComment(new DecompilerComment("Exception decompiling", e));
+        if (exceeded) {
+            comments.addComment(DecompilerComment.ANALYSIS_BUDGET_EXCEEDED);
+        } else {
+            comments.addComment(new DecompilerComment("Exception decompiling", e));
+        }
     }
 
     @Override
@@ -5,10 +5,10 @@ import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.discovery.InferredJavaType;
 import org.benf.cfr.reader.entities.attributes.AttributeCode;
 import org.benf.cfr.reader.util.collections.MapFactory;
-import org.benf.cfr.reader.util.collections.SetFactory;
 import org.benf.cfr.reader.util.functors.UnaryFunction;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.PermittedOptionProvider;
+import org.benf.cfr.reader.util.collections.IntSet;
 
 import java.util.EnumSet;
 import java.util.List;
@@ -29,7 +29,7 @@ public class BytecodeMeta {
 
     private final EnumSet<CodeInfoFlag> flags = EnumSet.noneOf(CodeInfoFlag.class);
 
-    private final Set<Integer> livenessClashes = SetFactory.newSet();
+    private final IntSet livenessClashes = new IntSet();
     private final Map<Integer, JavaTypeInstance> iteratedTypeHints = MapFactory.newMap();
     private final Options options;
 
@@ -52,6 +52,16 @@ public class BytecodeMeta {
         }
     }
 
+    /*
+     * Snapshot, for speculative recovery passes to read while the real one carries on changing.
+     */
+    public BytecodeMeta(BytecodeMeta other) {
+        this.options = other.options;
+        this.flags.addAll(other.flags);
+        this.livenessClashes.addAll(other.livenessClashes);
+        this.iteratedTypeHints.putAll(other.iteratedTypeHints);
+    }
+
     public boolean has(CodeInfoFlag flag) {
         return flags.contains(flag);
     }
@@ -83,7 +93,7 @@ public class BytecodeMeta {
            return iteratedTypeHints;
     }
 
-    public Set<Integer> getLivenessClashes() {
+    public IntSet getLivenessClashes() {
         return livenessClashes;
     }
 
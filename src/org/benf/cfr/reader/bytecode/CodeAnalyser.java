@@ -55,6 +55,7 @@ import org.benf.cfr.reader.entities.attributes.AttributeCode;
 import org.benf.cfr.reader.entities.constantpool.ConstantPool;
 import org.benf.cfr.reader.entities.exceptions.ExceptionAggregator;
 import org.benf.cfr.reader.entities.exceptions.ExceptionTableEntry;
+import org.benf.cfr.reader.state.AnalysisCounters;
 import org.benf.cfr.reader.state.DCCommonState;
 import org.benf.cfr.reader.util.ClassFileVersion;
 import org.benf.cfr.reader.util.ConfusedCFRException;
@@ -68,13 +69,16 @@ import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
 import org.benf.cfr.reader.util.output.Dumper;
+import org.benf.cfr.reader.util.collections.IntIntMap;
+import org.benf.cfr.reader.util.collections.IntSortedMap;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class CodeAnalyser {
     private final AttributeCode originalCodeAttribute;
@@ -83,6 +87,8 @@ public class CodeAnalyser {
     private Method method;
 
     private Op04StructuredStatement analysed;
+    // Set up when we begin analysis - until then, nothing to check against.
+    private AnalysisBudget budget = AnalysisBudget.NONE;
     private static final Op04StructuredStatement POISON = new Op04StructuredStatement(new StructuredComment("Analysis utterly failed (Recursive inlining?)"));
 
     public CodeAnalyser(AttributeCode attributeCode) {
@@ -169,6 +175,7 @@ public class CodeAnalyser {
 
         Options options = dcCommonState.getOptions();
         List<Op01WithProcessedDataAndByteJumps> instrs = getInstrs();
+        budget = AnalysisBudget.create(options, method.getClassFile().getAnalysisBudget(options), instrs.size());
 
         AnalysisResult res;
 
@@ -189,22 +196,21 @@ public class CodeAnalyser {
             res = getAnalysisOrWrapFail(0, instrs, dcCommonState, options, null, bytecodeMeta);
 
             if (res.isFailed() && options.getOption(OptionsImpl.RECOVER)) {
-                int passIdx = 1;
-                for (RecoveryOptions recoveryOptions : recoveryOptionsArr) {
-                    RecoveryOptions.Applied applied = recoveryOptions.apply(dcCommonState, options, bytecodeMeta);
-                    if (!applied.valid) continue;
-                    AnalysisResult nextRes = getAnalysisOrWrapFail(passIdx++, instrs, dcCommonState, applied.options, applied.comments, bytecodeMeta);
-                    if (nextRes != null) {
-                        if (res.isFailed() && nextRes.isFailed()) {
-                            // If they both failed, only replace if the later failure is not an exception.
-                            // (or if the earlier one is).
-                            if (res.isThrown() || !nextRes.isThrown()) res = nextRes;
-                        } else {
-                            res = nextRes;
-                        }
+                int parallelRecovery = options.getOption(OptionsImpl.PARALLEL_RECOVERY);
+                if (parallelRecovery > 1) {
+                    res = getRecoveryAnalysisConcurrently(parallelRecovery, res, instrs, dcCommonState, options, bytecodeMeta);
+                } else {
+                    int passIdx = 1;
+                    for (RecoveryOptions recoveryOptions : recoveryOptionsArr) {
+                        RecoveryOptions.Applied applied = recoveryOptions.apply(dcCommonState, options, bytecodeMeta);
+                        if (!applied.valid) continue;
+                        // No point in trying again, every pass would give up straight away.
+                        if (budget.isOutOfTime()) break;
+                        AnalysisResult nextRes = getAnalysisOrWrapFail(passIdx++, instrs, dcCommonState, applied.options, applied.comments, bytecodeMeta);
+                        res = preferResult(res, nextRes);
+                        if (res.isFailed()) continue;
+                        break;
                     }
-                    if (res.isFailed()) continue;
-                    break;
                 }
             }
         }
@@ -222,6 +228,128 @@ public class CodeAnalyser {
         return analysed;
     }
 
+    private static AnalysisResult preferResult(AnalysisResult res, AnalysisResult nextRes) {
+        if (nextRes == null) return res;
+        if (res.isFailed() && nextRes.isFailed()) {
+            // If they both failed, only replace if the later failure is not an exception.
+            // (or if the earlier one is).
+            if (res.isThrown() || !nextRes.isThrown()) return nextRes;
+            return res;
+        }
+        return nextRes;
+    }
+
+    /*
+     * As per the serial recovery loop, however the first part of each pass - building the op02 graph, up to
+     * discoverStorageLiveness - is started on a pool up front.
+     *
+     * Everything from discoverStorageLiveness on both reads and changes state which later passes see - the
+     * meta, the method prototype, the variable namer, and the parameters.  So that part of a pass can only be
+     * run once the pass before it has finished - it's always run here, on the calling thread, in pass order.
+     * The op02 stage needs nothing but the bytecode and the options the pass is run with (and the meta flags
+     * from the initial scan, which never change).  So those options are decided against a snapshot of the
+     * meta as pass 0 left it.  We then walk the passes in order exactly as the serial loop does, re-deciding
+     * each against the real meta; a speculative op02 graph is only used if it was built with the same
+     * options.  Otherwise it's thrown away, and the pass is run here from scratch.  So the result (and any
+     * side effects) are exactly those of serial recovery.
+     *
+     * Once we have an acceptable result, the remaining passes are cancelled.
+     */
+    private AnalysisResult getRecoveryAnalysisConcurrently(int threads, AnalysisResult res, List<Op01WithProcessedDataAndByteJumps> instrs, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta) {
+        BytecodeMeta launchMeta = new BytecodeMeta(bytecodeMeta);
+        SpeculativePass[] passes = new SpeculativePass[recoveryOptionsArr.length];
+        ExecutorService executor = RecoveryExecutor.get(threads);
+        try {
+            int passIdx = 1;
+            for (int x = 0; x < recoveryOptionsArr.length; ++x) {
+                RecoveryOptions.Applied applied = recoveryOptionsArr[x].apply(dcCommonState, options, launchMeta);
+                if (!applied.valid) continue;
+                SpeculativePass pass = new SpeculativePass(passIdx++, applied, instrs, dcCommonState, launchMeta);
+                pass.future = executor.submit(pass);
+                passes[x] = pass;
+            }
+            passIdx = 1;
+            for (int x = 0; x < recoveryOptionsArr.length; ++x) {
+                RecoveryOptions.Applied applied = recoveryOptionsArr[x].apply(dcCommonState, options, bytecodeMeta);
+                if (!applied.valid) continue;
+                if (budget.isOutOfTime()) break;
+                SpeculativePass pass = passes[x];
+                passes[x] = null;
+                AnalysisResult nextRes;
+                if (pass != null && pass.passIdx == passIdx && pass.applied.sameOptionsAs(applied)) {
+                    nextRes = pass.getAnalysisOrWrapFail(applied, bytecodeMeta);
+                } else {
+                    if (pass != null) pass.future.cancel(true);
+                    nextRes = getAnalysisOrWrapFail(passIdx, instrs, dcCommonState, applied.options, applied.comments, bytecodeMeta);
+                }
+                passIdx++;
+                res = preferResult(res, nextRes);
+                if (res.isFailed()) continue;
+                break;
+            }
+        } finally {
+            for (SpeculativePass pass : passes) {
+                if (pass != null) pass.future.cancel(true);
+            }
+        }
+        return res;
+    }
+
+    private class SpeculativePass implements Callable<Op02Analysis> {
+        private final int passIdx;
+        private final RecoveryOptions.Applied applied;
+        private final List<Op01WithProcessedDataAndByteJumps> instrs;
+        private final DCCommonState dcCommonState;
+        // Shared by every speculative pass - nobody changes it.
+        private final BytecodeMeta launchMeta;
+        private Future<Op02Analysis> future;
+
+        private SpeculativePass(int passIdx, RecoveryOptions.Applied applied, List<Op01WithProcessedDataAndByteJumps> instrs, DCCommonState dcCommonState, BytecodeMeta launchMeta) {
+            this.passIdx = passIdx;
+            this.applied = applied;
+            this.instrs = instrs;
+            this.dcCommonState = dcCommonState;
+            this.launchMeta = launchMeta;
+        }
+
+        @Override
+        public Op02Analysis call() {
+            return getOp02Analysis(instrs, dcCommonState, applied.options, launchMeta, passIdx, true);
+        }
+
+        /*
+         * Only called once the options this pass would be run with are known to be the ones it was started
+         * with - so carrying on from its op02 graph is the same as having run it directly.
+         */
+        private AnalysisResult getAnalysisOrWrapFail(RecoveryOptions.Applied applied, BytecodeMeta bytecodeMeta) {
+            try {
+                Op02Analysis op02Analysis;
+                try {
+                    op02Analysis = future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) throw (Error) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new ConfusedCFRException(e);
+                } catch (InterruptedException e) {
+                    /*
+                     * We're being asked to give up - but we can't give up on an analysis.  Run this pass
+                     * directly instead, as serial recovery would have done.
+                     */
+                    Thread.currentThread().interrupt();
+                    future.cancel(true);
+                    op02Analysis = getOp02Analysis(instrs, dcCommonState, applied.options, bytecodeMeta, passIdx, false);
+                }
+                Op03Analysis op03Analysis = getOp03Analysis(op02Analysis, dcCommonState, applied.options, bytecodeMeta, passIdx);
+                AnalysisResult res = getStructuredAnalysis(op03Analysis, dcCommonState, applied.options, bytecodeMeta, passIdx);
+                if (applied.comments != null) res.getComments().addComments(applied.comments);
+                return res;
+            } catch (RuntimeException e) {
+                return new AnalysisResultFromException(e);
+            }
+        }
+    }
+
     /*
      * Expensive mechanism for getting a single bytecode instruction.  We should only use this when recovering
      * from illegal instructions.
@@ -273,8 +401,83 @@ public class CodeAnalyser {
      * passIdx is only useful for breakpointing.
      */
     private AnalysisResult getAnalysisInner(List<Op01WithProcessedDataAndByteJumps> instrs, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx) {
+        Op02Analysis op02Analysis = getOp02Analysis(instrs, dcCommonState, options, bytecodeMeta, passIdx, false);
+        Op03Analysis op03Analysis = getOp03Analysis(op02Analysis, dcCommonState, options, bytecodeMeta, passIdx);
+        return getStructuredAnalysis(op03Analysis, dcCommonState, options, bytecodeMeta, passIdx);
+    }
 
-        boolean willSort = options.getOption(OptionsImpl.FORCE_TOPSORT) == Troolean.TRUE;
+    /*
+     * Where we've got to just before discoverStorageLiveness.  Nothing up to here depends on what earlier
+     * passes left behind, so it may be run speculatively - see getRecoveryAnalysisConcurrently.
+     */
+    private static class Op02Analysis {
+        private final DecompilerComments comments;
+        private final List<Op02WithProcessedDataAndRefs> op2list;
+        private final BlockIdentifierFactory blockIdentifierFactory;
+        private final IntSortedMap lutByOffset;
+        private final boolean aggressiveSizeReductions;
+        // The op03 stage carries on numbering where op02 left off, whichever thread it's on.
+        private final AnalysisCounters.IdScope ids;
+
+        private Op02Analysis(DecompilerComments comments, List<Op02WithProcessedDataAndRefs> op2list, BlockIdentifierFactory blockIdentifierFactory, IntSortedMap lutByOffset, boolean aggressiveSizeReductions, AnalysisCounters.IdScope ids) {
+            this.comments = comments;
+            this.op2list = op2list;
+            this.blockIdentifierFactory = blockIdentifierFactory;
+            this.lutByOffset = lutByOffset;
+            this.aggressiveSizeReductions = aggressiveSizeReductions;
+            this.ids = ids;
+        }
+    }
+
+    /*
+     * Where we've got to by the end of the op03 stage.
+     */
+    private static class Op03Analysis {
+        private final DecompilerComments comments;
+        private final List<Op03SimpleStatement> op03SimpleParseNodes;
+        private final VariableFactory variableFactory;
+        private final BlockIdentifierFactory blockIdentifierFactory;
+        private final AnonymousClassUsage anonymousClassUsage;
+        private final IntSortedMap lutByOffset;
+        // The op04 stage carries on numbering in the same scope.
+        private final AnalysisCounters.IdScope ids;
+
+        private Op03Analysis(DecompilerComments comments, List<Op03SimpleStatement> op03SimpleParseNodes, VariableFactory variableFactory, BlockIdentifierFactory blockIdentifierFactory, AnonymousClassUsage anonymousClassUsage, IntSortedMap lutByOffset, AnalysisCounters.IdScope ids) {
+            this.comments = comments;
+            this.op03SimpleParseNodes = op03SimpleParseNodes;
+            this.variableFactory = variableFactory;
+            this.blockIdentifierFactory = blockIdentifierFactory;
+            this.anonymousClassUsage = anonymousClassUsage;
+            this.lutByOffset = lutByOffset;
+            this.ids = ids;
+        }
+    }
+
+    /*
+     * A cancelled speculative pass just wants to stop as soon as possible - nobody will look at the result.
+     */
+    private static void checkAbandoned(boolean speculative) {
+        if (speculative && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    /*
+     * Each pass numbers what it creates in an id scope of its own, so that ids don't depend on which
+     * thread the pass happens to run on - see AnalysisCounters.
+     */
+    private Op02Analysis getOp02Analysis(List<Op01WithProcessedDataAndByteJumps> instrs, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx, boolean speculative) {
+        AnalysisCounters.IdScope ids = dcCommonState.getAnalysisCounters().newIdScope();
+        AnalysisCounters.IdScope previous = ids.bind();
+        try {
+            return getOp02AnalysisInScope(instrs, dcCommonState, options, bytecodeMeta, passIdx, speculative, ids);
+        } finally {
+            AnalysisCounters.IdScope.restore(previous);
+        }
+    }
+
+    private Op02Analysis getOp02AnalysisInScope(List<Op01WithProcessedDataAndByteJumps> instrs, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx, boolean speculative, AnalysisCounters.IdScope ids) {
+        PassInstrumentation.Timer timer = PassInstrumentation.start(dcCommonState.getPassInstrumentation(), method, passIdx);
 
         ClassFile classFile = method.getClassFile();
         ClassFileVersion classFileVersion = classFile.getClassFileVersion();
@@ -286,8 +489,8 @@ public class CodeAnalyser {
             comments.addComment("Opcode count of " + instrs.size() + " triggered aggressive code reduction.  Override with --" + OptionsImpl.AGGRESSIVE_SIZE_REDUCTION_THRESHOLD.getName() + ".");
         }
 
-        SortedMap<Integer, Integer> lutByOffset = new TreeMap<Integer, Integer>();
-        Map<Integer, Integer> lutByIdx = new HashMap<Integer, Integer>();
+        IntSortedMap lutByOffset = new IntSortedMap(instrs.size() + 1);
+        IntIntMap lutByIdx = new IntIntMap(instrs.size() + 1);
         int idx2 = 0;
         int offset2 = -1;
         for (Op01WithProcessedDataAndByteJumps op : instrs) {
@@ -309,6 +512,7 @@ public class CodeAnalyser {
             Op02WithProcessedDataAndRefs op2 = op1.createOp2(cp, x, locFactory, method);
             op2list.add(op2);
         }
+        timer.done("Op01WithProcessedDataAndByteJumps.createOp2");
 
         // If there are any op01 which refer to instructions that are illegal intra-instructions
         // (https://anthony.som.codes/blog/2019-12-30-jvm-hackery-noverify/), and we're allowing that,
@@ -339,7 +543,10 @@ public class CodeAnalyser {
                 }
             }
         }
+        timer.done("Op01WithProcessedDataAndByteJumps.getAbsoluteIndexJumps");
 
+        checkAbandoned(speculative);
+        budget.check(op2list.size());
 
         BlockIdentifierFactory blockIdentifierFactory = new BlockIdentifierFactory();
 
@@ -350,6 +557,7 @@ public class CodeAnalyser {
         }
 
         ExceptionAggregator exceptions = new ExceptionAggregator(exceptionTableEntries, blockIdentifierFactory, lutByOffset, instrs, options, cp, comments);
+        timer.done("ExceptionAggregator");
         if (exceptions.RemovedLoopingExceptions()) {
             comments.addComment(DecompilerComment.LOOPING_EXCEPTIONS);
         }
@@ -368,6 +576,7 @@ public class CodeAnalyser {
              * This one's less safe, but...
              */
             exceptions.removeSynchronisedHandlers(lutByOffset, lutByIdx, instrs);
+            timer.done("ExceptionAggregator.aggressivePruning");
         }
 
         /*
@@ -379,11 +588,14 @@ public class CodeAnalyser {
         if (options.getOption(OptionsImpl.REWRITE_LAMBDAS, classFileVersion) &&
                 bytecodeMeta.has(BytecodeMeta.CodeInfoFlag.USES_INVOKEDYNAMIC)) {
             Op02GetClassRewriter.removeInvokeGetClass(classFile, op2list, GetClassTestLambda.INSTANCE);
+            timer.done("Op02GetClassRewriter.removeInvokeGetClass");
         }
         Op02GetClassRewriter.removeInvokeGetClass(classFile, op2list, GetClassTestInnerConstructor.INSTANCE);
+        timer.done("Op02GetClassRewriter.removeInvokeGetClass");
 
         long codeLength = originalCodeAttribute.getCodeLength();
         op2list = Op02WithProcessedDataAndRefs.insertExceptionBlocks(op2list, exceptions, lutByOffset, cp, codeLength, options);
+        timer.done("Op02WithProcessedDataAndRefs.insertExceptionBlocks");
         // lutByOffset is no longer valid at this point, but we might still need it to determine variable lifetime (i.e what
         // was the instruction BEFORE this one)
 
@@ -395,6 +607,7 @@ public class CodeAnalyser {
          */
         if (aggressiveSizeReductions) {
             Op02RedundantStoreRewriter.rewrite(op2list, originalCodeAttribute.getMaxLocals());
+            timer.done("Op02RedundantStoreRewriter.rewrite");
         }
 
 
@@ -403,6 +616,7 @@ public class CodeAnalyser {
         // This is the point at which we combine temporaries from merging
         // stacks.
         DecompilerComment o2stackComment = Op02WithProcessedDataAndRefs.populateStackInfo(op2list, method);
+        timer.done("Op02WithProcessedDataAndRefs.populateStackInfo");
 
         /* Extra fun.  A ret can have a jump back to the instruction immediately following the JSR that called it.
          * So we have to search for RET instructions, then for each of them find any JSRs which could call it, and add
@@ -412,9 +626,12 @@ public class CodeAnalyser {
          * This applies to the targets of JSRs too. (though there's nothing stopping the target of the JSR from returning a
          * DIFFERENT stack depth).
          */
-        if (Op02WithProcessedDataAndRefs.processJSR(op2list)) {
+        boolean processedJSR = Op02WithProcessedDataAndRefs.processJSR(op2list, budget);
+        timer.done("Op02WithProcessedDataAndRefs.processJSR");
+        if (processedJSR) {
             // Repopulate stack info, as it will have changed, as we might have cloned instructions.
             o2stackComment = Op02WithProcessedDataAndRefs.populateStackInfo(op2list, method);
+            timer.done("Op02WithProcessedDataAndRefs.populateStackInfo");
         }
         if (o2stackComment != null) {
             comments.addComment(o2stackComment);
@@ -426,10 +643,39 @@ public class CodeAnalyser {
         // can generate bytecode with unreachable operations, which confuses later stages which
         // expect all parents of opcodes to have been processed in a DFS.
         Op02WithProcessedDataAndRefs.unlinkUnreachable(op2list);
+        timer.done("Op02WithProcessedDataAndRefs.unlinkUnreachable");
+
+        checkAbandoned(speculative);
+        budget.check(op2list.size());
+
+        return new Op02Analysis(comments, op2list, blockIdentifierFactory, lutByOffset, aggressiveSizeReductions, ids);
+    }
+
+    private Op03Analysis getOp03Analysis(Op02Analysis op02Analysis, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx) {
+        AnalysisCounters.IdScope previous = op02Analysis.ids.bind();
+        try {
+            return getOp03AnalysisInScope(op02Analysis, dcCommonState, options, bytecodeMeta, passIdx);
+        } finally {
+            AnalysisCounters.IdScope.restore(previous);
+        }
+    }
+
+    private Op03Analysis getOp03AnalysisInScope(Op02Analysis op02Analysis, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx) {
+        PassInstrumentation.Timer timer = PassInstrumentation.start(dcCommonState.getPassInstrumentation(), method, passIdx);
 
+        boolean willSort = options.getOption(OptionsImpl.FORCE_TOPSORT) == Troolean.TRUE;
+
+        ClassFileVersion classFileVersion = method.getClassFile().getClassFileVersion();
+        DecompilerComments comments = op02Analysis.comments;
+        List<Op02WithProcessedDataAndRefs> op2list = op02Analysis.op2list;
+        BlockIdentifierFactory blockIdentifierFactory = op02Analysis.blockIdentifierFactory;
+        IntSortedMap lutByOffset = op02Analysis.lutByOffset;
+        boolean aggressiveSizeReductions = op02Analysis.aggressiveSizeReductions;
 
         // Discover slot re-use, infer invisible constructor parameters, etc.
+        // (this may update the method prototype).
         Op02WithProcessedDataAndRefs.discoverStorageLiveness(method, comments, op2list, bytecodeMeta);
+        timer.done("Op02WithProcessedDataAndRefs.discoverStorageLiveness");
 
         // Create a non final version...
         final VariableFactory variableFactory = new VariableFactory(method, bytecodeMeta);
@@ -438,63 +684,85 @@ public class CodeAnalyser {
                 new TypeHintRecoveryImpl(bytecodeMeta) : TypeHintRecoveryNone.INSTANCE;
 
         List<Op03SimpleStatement> op03SimpleParseNodes = Op02WithProcessedDataAndRefs.convertToOp03List(op2list, method, variableFactory, blockIdentifierFactory, dcCommonState, comments, typeHintRecovery);
+        timer.done("Op02WithProcessedDataAndRefs.convertToOp03List");
         // Renumber, just in case JSR stage (or something) has left bad labellings.
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
 
         // Expand any 'multiple' statements (eg from dups)
         Misc.flattenCompoundStatements(op03SimpleParseNodes);
+        timer.done("Misc.flattenCompoundStatements");
         // Before we get complicated, see if there are any values which have been left with null/void types, but have
         // known base information which can improve it.
         Op03Rewriters.rewriteWith(op03SimpleParseNodes, new NullTypedLValueRewriter());
+        timer.done("Op03Rewriters.rewriteWith(NullTypedLValueRewriter)");
         Op03Rewriters.rewriteWith(op03SimpleParseNodes, new BadBoolAssignmentRewriter());
+        timer.done("Op03Rewriters.rewriteWith(BadBoolAssignmentRewriter)");
         // Very early, we make a pass through collecting all the method calls for a given type
         // SPECIFICALLY by type pointer, don't alias identical types.
         // We then see if we can infer information from RHS <- LHS re generics, but make sure that we
         // don't do it over aggressively (see UntypedMapTest);
         GenericInferer.inferGenericObjectInfoFromCalls(op03SimpleParseNodes);
+        timer.done("GenericInferer.inferGenericObjectInfoFromCalls");
         
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
 
         if (aggressiveSizeReductions) {
             op03SimpleParseNodes = LValuePropSimple.condenseSimpleLValues(op03SimpleParseNodes);
+            timer.done("LValuePropSimple.condenseSimpleLValues");
         }
 
         Op03Rewriters.nopIsolatedStackValues(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.nopIsolatedStackValues");
 
         Op03SimpleStatement.assignSSAIdentifiers(method, op03SimpleParseNodes);
+        timer.done("Op03SimpleStatement.assignSSAIdentifiers");
 
         // Fix static instance usage.
         Op03Rewriters.condenseStaticInstances(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.condenseStaticInstances");
 
         // Condense pointless assignments
         LValueProp.condenseLValues(op03SimpleParseNodes);
+        timer.done("LValueProp.condenseLValues");
 
         if (options.getOption(OptionsImpl.REMOVE_DEAD_CONDITIONALS) == Troolean.TRUE) {
             // This removes impossible conditionals, but could hide real code, so we want
             // to avoid doing this unless necessary.
             op03SimpleParseNodes = Op03Rewriters.removeDeadConditionals(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.removeDeadConditionals");
         }
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
 
         // Before we expand raw switches, try to spot a particularly nasty pattern that kotlin
         // generates for string switches.
         op03SimpleParseNodes = KotlinSwitchHandler.extractStringSwitches(op03SimpleParseNodes, bytecodeMeta);
+        timer.done("KotlinSwitchHandler.extractStringSwitches");
         // Expand raw switch statements into more useful ones.
         SwitchReplacer.replaceRawSwitches(method, op03SimpleParseNodes, blockIdentifierFactory, options);
+        timer.done("SwitchReplacer.replaceRawSwitches");
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
 
         // Remove 2nd (+) jumps in pointless jump chains.
         Op03Rewriters.removePointlessJumps(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removePointlessJumps");
 
         // Try to eliminate catch temporaries.
         op03SimpleParseNodes = Op03Rewriters.eliminateCatchTemporaries(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.eliminateCatchTemporaries");
 
         Op03Rewriters.identifyCatchBlocks(op03SimpleParseNodes, blockIdentifierFactory);
+        timer.done("Op03Rewriters.identifyCatchBlocks");
 
         Op03Rewriters.combineTryCatchBlocks(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.combineTryCatchBlocks");
 
         if (options.getOption(OptionsImpl.COMMENT_MONITORS)) {
             Op03Rewriters.commentMonitors(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.commentMonitors");
         }
 
         //      Op03SimpleStatement.removePointlessExpressionStatements(op03SimpleParseNodes);
@@ -503,80 +771,116 @@ public class CodeAnalyser {
 
         // Rewrite new / constructor pairs.
         Op03Rewriters.condenseConstruction(dcCommonState, method, op03SimpleParseNodes, anonymousClassUsage);
+        timer.done("Op03Rewriters.condenseConstruction");
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
         LValueProp.condenseLValues(op03SimpleParseNodes);
+        timer.done("LValueProp.condenseLValues");
         Op03Rewriters.condenseLValueChain1(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.condenseLValueChain1");
 
         StaticInitReturnRewriter.rewrite(options, method, op03SimpleParseNodes);
+        timer.done("StaticInitReturnRewriter.rewrite");
 
         op03SimpleParseNodes = Op03Rewriters.removeRedundantTries(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removeRedundantTries");
 
         FinallyRewriter.identifyFinally(options, method, op03SimpleParseNodes, blockIdentifierFactory);
+        timer.done("FinallyRewriter.identifyFinally");
 
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, !willSort);
+        timer.done("Cleaner.removeUnreachableCode");
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
 
         /*
          * See if try blocks can be extended with simple returns here.  This is an extra pass, because we might have
          * missed backjumps from catches earlier.
          */
         Op03Rewriters.extendTryBlocks(dcCommonState, op03SimpleParseNodes);
+        timer.done("Op03Rewriters.extendTryBlocks");
         Op03Rewriters.combineTryCatchEnds(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.combineTryCatchEnds");
 
         // Remove LValues which are on their own as expressionstatements.
         Op03Rewriters.removePointlessExpressionStatements(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removePointlessExpressionStatements");
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, !willSort);
+        timer.done("Cleaner.removeUnreachableCode");
 
         // Now we've done our first stage condensation, we want to transform assignments which are
         // self updates into preChanges, if we can.  I.e. x = x | 3  ->  x |= 3,  x = x + 1 -> x+=1 (===++x).
         // (we do this here rather than taking advantage of INC opcodes as this allows us to catch the former)
         Op03Rewriters.replacePrePostChangeAssignments(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.replacePrePostChangeAssignments");
 
         // Some pre-changes can be converted into post-changes.
         Op03Rewriters.pushPreChangeBack(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.pushPreChangeBack");
 
         Op03Rewriters.condenseLValueChain2(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.condenseLValueChain2");
 
         // Condense again, now we've simplified constructors.
         // Inline assingments need to be dealt with HERE (!).
         Op03Rewriters.collapseAssignmentsIntoConditionals(op03SimpleParseNodes, options, classFileVersion);
+        timer.done("Op03Rewriters.collapseAssignmentsIntoConditionals");
         LValueProp.condenseLValues(op03SimpleParseNodes);
+        timer.done("LValueProp.condenseLValues");
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
 
         if (options.getOption(OptionsImpl.FORCE_COND_PROPAGATE) == Troolean.TRUE) {
             op03SimpleParseNodes = RemoveDeterministicJumps.apply(method, op03SimpleParseNodes);
+            timer.done("RemoveDeterministicJumps.apply");
         }
 
+        budget.check(op03SimpleParseNodes.size());
+
         if (options.getOption(OptionsImpl.FORCE_TOPSORT) == Troolean.TRUE) {
             if (options.getOption(OptionsImpl.FORCE_RETURNING_IFS) == Troolean.TRUE) {
                 Op03Rewriters.replaceReturningIfs(op03SimpleParseNodes, true);
+                timer.done("Op03Rewriters.replaceReturningIfs");
             }
             if (options.getOption(OptionsImpl.FORCE_COND_PROPAGATE) == Troolean.TRUE) {
                 Op03Rewriters.propagateToReturn2(op03SimpleParseNodes);
+                timer.done("Op03Rewriters.propagateToReturn2");
             }
             ExceptionRewriters.handleEmptyTries(op03SimpleParseNodes);
+            timer.done("ExceptionRewriters.handleEmptyTries");
 
             op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, false);
+            timer.done("Cleaner.removeUnreachableCode");
 
-            op03SimpleParseNodes = Op03Blocks.topologicalSort(op03SimpleParseNodes, comments, options);
+            op03SimpleParseNodes = Op03Blocks.topologicalSort(op03SimpleParseNodes, comments, options, budget);
+            timer.done("Op03Blocks.topologicalSort");
             Op03Rewriters.removePointlessJumps(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.removePointlessJumps");
 
             /*
              * Now we've sorted, we need to rebuild switch blocks.....
              */
             SwitchReplacer.rebuildSwitches(op03SimpleParseNodes, options);
+            timer.done("SwitchReplacer.rebuildSwitches");
             /*
              * This set of operations is /very/ aggressive.
              */
             // This is not necessarily a sensible thing to do, but we're being aggressive...
             Op03Rewriters.rejoinBlocks(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.rejoinBlocks");
             Op03Rewriters.extendTryBlocks(dcCommonState, op03SimpleParseNodes);
+            timer.done("Op03Rewriters.extendTryBlocks");
             op03SimpleParseNodes = Op03Blocks.combineTryBlocks(op03SimpleParseNodes);
+            timer.done("Op03Blocks.combineTryBlocks");
             Op03Rewriters.combineTryCatchEnds(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.combineTryCatchEnds");
             Op03Rewriters.rewriteTryBackJumps(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.rewriteTryBackJumps");
             FinallyRewriter.identifyFinally(options, method, op03SimpleParseNodes, blockIdentifierFactory);
+            timer.done("FinallyRewriter.identifyFinally");
             if (options.getOption(OptionsImpl.FORCE_RETURNING_IFS) == Troolean.TRUE) {
                 Op03Rewriters.replaceReturningIfs(op03SimpleParseNodes, true);
+                timer.done("Op03Rewriters.replaceReturningIfs");
             }
         }
 
@@ -586,37 +890,50 @@ public class CodeAnalyser {
          */
         if (options.getOption(OptionsImpl.FORCE_COND_PROPAGATE) == Troolean.TRUE) {
             RemoveDeterministicJumps.propagateToReturn(method, op03SimpleParseNodes);
+            timer.done("RemoveDeterministicJumps.propagateToReturn");
         }
 
         boolean reloop;
         do {
             Op03Rewriters.rewriteNegativeJumps(op03SimpleParseNodes, true);
+            timer.done("Op03Rewriters.rewriteNegativeJumps");
 
             Op03Rewriters.collapseAssignmentsIntoConditionals(op03SimpleParseNodes, options, classFileVersion);
+            timer.done("Op03Rewriters.collapseAssignmentsIntoConditionals");
 
             // Collapse conditionals into || / &&
             reloop = Op03Rewriters.condenseConditionals(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.condenseConditionals");
             // Condense odder conditionals, which may involve inline ternaries which are
             // hard to work out later.  This isn't going to get everything, but may help!
             //
             reloop = reloop | Op03Rewriters.condenseConditionals2(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.condenseConditionals2");
             reloop = reloop | Op03Rewriters.normalizeDupAssigns(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.normalizeDupAssigns");
             if (reloop) {
                 LValueProp.condenseLValues(op03SimpleParseNodes);
+                timer.done("LValueProp.condenseLValues");
             }
             op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, true);
+            timer.done("Cleaner.removeUnreachableCode");
 
         } while (reloop);
 
         AnonymousArray.resugarAnonymousArrays(op03SimpleParseNodes);
+        timer.done("AnonymousArray.resugarAnonymousArrays");
 
         Op03Rewriters.simplifyConditionals(op03SimpleParseNodes, false, method);
+        timer.done("Op03Rewriters.simplifyConditionals");
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
 
         // Rewrite conditionals which jump into an immediate jump (see specifics)
         Op03Rewriters.rewriteNegativeJumps(op03SimpleParseNodes, false);
+        timer.done("Op03Rewriters.rewriteNegativeJumps");
 
         Op03Rewriters.optimiseForTypes(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.optimiseForTypes");
 
         // If statements which end up jumping to the final return can really confuse loop detection, so we want
         // to remove them.
@@ -634,129 +951,174 @@ public class CodeAnalyser {
 
         if (options.getOption(OptionsImpl.ECLIPSE)) {
             Op03Rewriters.eclipseLoopPass(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.eclipseLoopPass");
         }
 
+        budget.check(op03SimpleParseNodes.size());
+
         // Identify simple while loops.
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, true);
+        timer.done("Cleaner.removeUnreachableCode");
         LoopIdentifier.identifyLoops1(method, op03SimpleParseNodes, blockIdentifierFactory);
+        timer.done("LoopIdentifier.identifyLoops1");
 
         Op03Rewriters.rewriteBadCompares(variableFactory, op03SimpleParseNodes);
+        timer.done("Op03Rewriters.rewriteBadCompares");
 
         // After we've identified loops, try to push any instructions through a goto
         op03SimpleParseNodes = Op03Rewriters.pushThroughGoto(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.pushThroughGoto");
 
         // Replacing returning ifs early (above, aggressively) interferes with some nice output.
         // Normally we'd do it AFTER loops.
         if (options.getOption(OptionsImpl.FORCE_RETURNING_IFS) == Troolean.TRUE) {
             Op03Rewriters.replaceReturningIfs(op03SimpleParseNodes, false);
+            timer.done("Op03Rewriters.replaceReturningIfs");
         }
 
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
+        timer.done("Cleaner.sortAndRenumber");
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, true);
+        timer.done("Cleaner.removeUnreachableCode");
 
         // Perform this before simple forward if detection, as it allows us to not have to consider
         // gotos which have been relabelled as continue/break.
         Op03Rewriters.rewriteBreakStatements(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.rewriteBreakStatements");
         Op03Rewriters.rewriteDoWhileTruePredAsWhile(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.rewriteDoWhileTruePredAsWhile");
         Op03Rewriters.rewriteWhilesAsFors(options, op03SimpleParseNodes);
+        timer.done("Op03Rewriters.rewriteWhilesAsFors");
 
         // TODO : I think this is now redundant.
         Op03Rewriters.removeSynchronizedCatchBlocks(options, op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removeSynchronizedCatchBlocks");
 
         // identify conditionals which are of the form if (a) { xx } [ else { yy } ]
         // where xx and yy have no GOTOs in them.
         // We need another pass of this to remove jumps which are next to each other except for nops
         op03SimpleParseNodes = Op03Rewriters.removeUselessNops(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removeUselessNops");
         Op03Rewriters.removePointlessJumps(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removePointlessJumps");
         // BUT....
         // After we've removed pointless jumps, let's possibly re-add them, so that the structure of
         // try blocks doesn't end up with confusing jumps.  See ExceptionTest11.
         // (this removal and re-adding may seem daft, (and it often is), but we normalise code
         // and handle more cases by doing it).
         Op03Rewriters.extractExceptionJumps(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.extractExceptionJumps");
         Op03Rewriters.extractAssertionJumps(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.extractAssertionJumps");
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, true);
+        timer.done("Cleaner.removeUnreachableCode");
 
         // Identify simple (nested) conditionals - note that this also generates ternary expressions,
         // if the conditional is simple enough.
         ConditionalRewriter.identifyNonjumpingConditionals(op03SimpleParseNodes, blockIdentifierFactory);
+        timer.done("ConditionalRewriter.identifyNonjumpingConditionals");
 
         // If we have a conditional JUST before a do statement which jumps in, then see if we can
         // safely move it inside, and have another go.
         // After we've done this we need another go at identifyingNonJumpingConditionals, however that happens below.
         if (options.optionIsSet(OptionsImpl.AGGRESSIVE_DO_COPY)) {
             Op03Rewriters.cloneCodeFromLoop(op03SimpleParseNodes, options, comments);
+            timer.done("Op03Rewriters.cloneCodeFromLoop");
         }
         if (options.getOption(OptionsImpl.AGGRESSIVE_DO_EXTENSION) == Troolean.TRUE) {
             Op03Rewriters.moveJumpsIntoDo(variableFactory, op03SimpleParseNodes, options, comments);
+            timer.done("Op03Rewriters.moveJumpsIntoDo");
         }
 
         // Condense again, now we've simplified conditionals, ternaries, etc.
         LValueProp.condenseLValues(op03SimpleParseNodes);
+        timer.done("LValueProp.condenseLValues");
         if (options.getOption(OptionsImpl.FORCE_COND_PROPAGATE) == Troolean.TRUE) {
             Op03Rewriters.propagateToReturn2(op03SimpleParseNodes);
+            timer.done("Op03Rewriters.propagateToReturn2");
         }
 
         op03SimpleParseNodes = Op03Rewriters.removeUselessNops(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removeUselessNops");
 
 
         // By now, we've (re)moved several statements, so it's possible that some jumps can be rewritten to
         // breaks again.
         Op03Rewriters.removePointlessJumps(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removePointlessJumps");
         Op03Rewriters.rewriteBreakStatements(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.rewriteBreakStatements");
 
         // See if we can classify any more gotos - i.e. the last statement in a try block
         // which jumps to immediately after the catch block.
         //
         // While it seems perverse to have another pass at this here, it seems to yield the best results.
         Op03Rewriters.classifyGotos(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.classifyGotos");
         if (options.getOption(OptionsImpl.LABELLED_BLOCKS)) {
             Op03Rewriters.classifyAnonymousBlockGotos(op03SimpleParseNodes, false);
+            timer.done("Op03Rewriters.classifyAnonymousBlockGotos");
         }
         //
         // By this point, we've tried to classify ternaries.  We could try pushing some literals
         // very aggressively. (i.e. a=1, if (a) b=1 else b =0; return b. ) -> return 1;
         //
         ConditionalRewriter.identifyNonjumpingConditionals(op03SimpleParseNodes, blockIdentifierFactory);
+        timer.done("ConditionalRewriter.identifyNonjumpingConditionals");
 
         /*
          * Now we've got here, there's no benefit in having spurious inline assignments.  Where possible,
          * pull them out!
          */
         InlineDeAssigner.extractAssignments(op03SimpleParseNodes);
+        timer.done("InlineDeAssigner.extractAssignments");
+
+        budget.check(op03SimpleParseNodes.size());
 
         // Introduce java 6 style for (x : array)
         boolean checkLoopTypeClash = false;
         if (options.getOption(OptionsImpl.ARRAY_ITERATOR, classFileVersion)) {
             IterLoopRewriter.rewriteArrayForLoops(op03SimpleParseNodes);
+            timer.done("IterLoopRewriter.rewriteArrayForLoops");
             checkLoopTypeClash = true;
         }
         // and for (x : iterable)
         if (options.getOption(OptionsImpl.COLLECTION_ITERATOR, classFileVersion)) {
             IterLoopRewriter.rewriteIteratorWhileLoops(op03SimpleParseNodes);
+            timer.done("IterLoopRewriter.rewriteIteratorWhileLoops");
             checkLoopTypeClash = true;
         }
 
         SynchronizedBlocks.findSynchronizedBlocks(op03SimpleParseNodes);
+        timer.done("SynchronizedBlocks.findSynchronizedBlocks");
 
         Op03SimpleStatement.removePointlessSwitchDefaults(op03SimpleParseNodes);
+        timer.done("Op03SimpleStatement.removePointlessSwitchDefaults");
 
         op03SimpleParseNodes = Op03Rewriters.removeUselessNops(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removeUselessNops");
 
         Op03Rewriters.rewriteWith(op03SimpleParseNodes, new StringBuilderRewriter(options, classFileVersion));
+        timer.done("Op03Rewriters.rewriteWith(StringBuilderRewriter)");
         Op03Rewriters.rewriteWith(op03SimpleParseNodes, new XorRewriter());
+        timer.done("Op03Rewriters.rewriteWith(XorRewriter)");
 
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, true);
+        timer.done("Cleaner.removeUnreachableCode");
 
         if (options.getOption(OptionsImpl.LABELLED_BLOCKS)) {
             // Before we handle anonymous blocks - see if we can convert any non-else if statements, which
             // Jump to a Goto Out of try, to just be an anonymous break to after that try statement.
             Op03Rewriters.labelAnonymousBlocks(op03SimpleParseNodes, blockIdentifierFactory);
+            timer.done("Op03Rewriters.labelAnonymousBlocks");
         }
 
         Op03Rewriters.simplifyConditionals(op03SimpleParseNodes, true, method);
+        timer.done("Op03Rewriters.simplifyConditionals");
         Op03Rewriters.extractExceptionMiddle(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.extractExceptionMiddle");
         Op03Rewriters.removePointlessJumps(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.removePointlessJumps");
 
 
         /*
@@ -765,6 +1127,7 @@ public class CodeAnalyser {
          * (albeit locals which known that they don't have a valid lookup).
          */
         Op03Rewriters.replaceStackVarsWithLocals(op03SimpleParseNodes);
+        timer.done("Op03Rewriters.replaceStackVarsWithLocals");
 
         /*
          * We might have eliminated temporaries which caused potential type clashes.
@@ -774,9 +1137,11 @@ public class CodeAnalyser {
          * Re-scan assignments - see if we can narrow types.
          */
         Op03Rewriters.narrowAssignmentTypes(method, op03SimpleParseNodes);
+        timer.done("Op03Rewriters.narrowAssignmentTypes");
 
         if (options.getOption(OptionsImpl.SHOW_INFERRABLE, classFileVersion)) {
             Op03Rewriters.rewriteWith(op03SimpleParseNodes, new ExplicitTypeCallRewriter());
+            timer.done("Op03Rewriters.rewriteWith(ExplicitTypeCallRewriter)");
         }
         /*
          * It's possible to have false sharing across distinct regimes in the case of loops -
@@ -798,33 +1163,80 @@ public class CodeAnalyser {
             // Before we handle anonymous blocks - see if we can convert any non-else if statements, which
             // Jump to a Goto Out of try, to just be an anonymous break to after that try statement.
             Op03Rewriters.classifyAnonymousBlockGotos(op03SimpleParseNodes, true);
+            timer.done("Op03Rewriters.classifyAnonymousBlockGotos");
 
             Op03Rewriters.labelAnonymousBlocks(op03SimpleParseNodes, blockIdentifierFactory);
+            timer.done("Op03Rewriters.labelAnonymousBlocks");
         }
 
         Op03Rewriters.rewriteWith(op03SimpleParseNodes, new BadNarrowingArgRewriter());
+        timer.done("Op03Rewriters.rewriteWith(BadNarrowingArgRewriter)");
         Cleaner.reindexInPlace(op03SimpleParseNodes);
+        timer.done("Cleaner.reindexInPlace");
 
         Op03SimpleStatement.noteInterestingLifetimes(op03SimpleParseNodes);
+        timer.done("Op03SimpleStatement.noteInterestingLifetimes");
+
+        return new Op03Analysis(comments, op03SimpleParseNodes, variableFactory, blockIdentifierFactory, anonymousClassUsage, lutByOffset, op02Analysis.ids);
+    }
+
+    private AnalysisResult getStructuredAnalysis(Op03Analysis op03Analysis, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx) {
+        AnalysisCounters.IdScope previous = op03Analysis.ids.bind();
+        try {
+            return getStructuredAnalysisInScope(op03Analysis, dcCommonState, options, bytecodeMeta, passIdx);
+        } finally {
+            AnalysisCounters.IdScope.restore(previous);
+        }
+    }
+
+    private AnalysisResult getStructuredAnalysisInScope(Op03Analysis op03Analysis, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx) {
+        PassInstrumentation.Timer timer = PassInstrumentation.start(dcCommonState.getPassInstrumentation(), method, passIdx);
+        ClassFile classFile = method.getClassFile();
+        ClassFileVersion classFileVersion = classFile.getClassFileVersion();
+        DecompilerComments comments = op03Analysis.comments;
+        VariableFactory variableFactory = op03Analysis.variableFactory;
+        BlockIdentifierFactory blockIdentifierFactory = op03Analysis.blockIdentifierFactory;
+        AnonymousClassUsage anonymousClassUsage = op03Analysis.anonymousClassUsage;
+        IntSortedMap lutByOffset = op03Analysis.lutByOffset;
+
+        budget.checkTime();
 
-        Op04StructuredStatement block = Op03SimpleStatement.createInitialStructuredBlock(op03SimpleParseNodes);
+        Op04StructuredStatement block = Op03SimpleStatement.createInitialStructuredBlock(op03Analysis.op03SimpleParseNodes);
+        timer.done("Op03SimpleStatement.createInitialStructuredBlock");
 
         Op04StructuredStatement.tidyEmptyCatch(block);
+        timer.done("Op04StructuredStatement.tidyEmptyCatch");
         Op04StructuredStatement.tidyTryCatch(block);
+        timer.done("Op04StructuredStatement.tidyTryCatch");
         Op04StructuredStatement.convertUnstructuredIf(block);
+        timer.done("Op04StructuredStatement.convertUnstructuredIf");
         Op04StructuredStatement.inlinePossibles(block);
+        timer.done("Op04StructuredStatement.inlinePossibles");
         Op04StructuredStatement.removeStructuredGotos(block);
+        timer.done("Op04StructuredStatement.removeStructuredGotos");
         Op04StructuredStatement.removePointlessBlocks(block);
+        timer.done("Op04StructuredStatement.removePointlessBlocks");
         Op04StructuredStatement.removePointlessReturn(block);
+        timer.done("Op04StructuredStatement.removePointlessReturn");
         Op04StructuredStatement.removePointlessControlFlow(block);
+        timer.done("Op04StructuredStatement.removePointlessControlFlow");
         Op04StructuredStatement.removePrimitiveDeconversion(options, method, block);
+        timer.done("Op04StructuredStatement.removePrimitiveDeconversion");
         if (options.getOption(OptionsImpl.LABELLED_BLOCKS)) {
             Op04StructuredStatement.insertLabelledBlocks(block);
+            timer.done("Op04StructuredStatement.insertLabelledBlocks");
         }
         // It seems perverse to do a second pass for removal of pointless blocks - but now everything is in place
         // the logic is much cleaner.
         Op04StructuredStatement.removeUnnecessaryLabelledBreaks(block);
+        timer.done("Op04StructuredStatement.removeUnnecessaryLabelledBreaks");
         Op04StructuredStatement.flattenNonReferencedBlocks(block);
+        timer.done("Op04StructuredStatement.flattenNonReferencedBlocks");
+
+        /*
+         * Last chance to give up - from here on, we may be changing other methods (eg rewriting lambdas).
+         */
+        budget.checkTime();
 
         /*
          * If we can't fully structure the code, we bow out here.
@@ -834,19 +1246,25 @@ public class CodeAnalyser {
             comments.addComment(DecompilerComment.UNABLE_TO_STRUCTURE);
         } else {
             Op04StructuredStatement.tidyTypedBooleans(block);
+            timer.done("Op04StructuredStatement.tidyTypedBooleans");
             Op04StructuredStatement.prettifyBadLoops(block);
+            timer.done("Op04StructuredStatement.prettifyBadLoops");
 
             // Replace with a more generic interface, etc.
 
             new SwitchStringRewriter(options, classFileVersion, bytecodeMeta).rewrite(block);
+            timer.done("SwitchStringRewriter.rewrite");
             new SwitchEnumRewriter(dcCommonState, classFile, blockIdentifierFactory).rewrite(block);
+            timer.done("SwitchEnumRewriter.rewrite");
 
             // Just prior to variable scopes, if we've got any anonymous classes, and we're J10+,
             // then see if we are addressing non-existent content of anonymous objects.
             // If we are, this indicates that var was used.
             Op04StructuredStatement.rewriteExplicitTypeUsages(method, block, anonymousClassUsage, classFile);
+            timer.done("Op04StructuredStatement.rewriteExplicitTypeUsages");
 
             Op04StructuredStatement.normalizeInstanceOf(block, options, classFileVersion);
+            timer.done("Op04StructuredStatement.normalizeInstanceOf");
 
             // Now we've got everything nicely block structured, we can have an easier time
             // We *have* to discover variable scopes BEFORE we rewrite lambdas, because
@@ -858,60 +1276,79 @@ public class CodeAnalyser {
             // We therefore need a SEPARATE pass, post lambda, to ensure that local classes are
             // correctly processed.
             Op04StructuredStatement.discoverVariableScopes(method, block, variableFactory, options, classFileVersion, bytecodeMeta);
+            timer.done("Op04StructuredStatement.discoverVariableScopes");
             if (bytecodeMeta.has(BytecodeMeta.CodeInfoFlag.INSTANCE_OF_MATHCES)) {
                 Op04StructuredStatement.tidyInstanceMatches(block);
+                timer.done("Op04StructuredStatement.tidyInstanceMatches");
             }
             if (options.getOption(OptionsImpl.REWRITE_TRY_RESOURCES, classFileVersion)) {
                 Op04StructuredStatement.removeEndResource(method.getClassFile(), block);
+                timer.done("Op04StructuredStatement.removeEndResource");
             }
 
             if (options.getOption(OptionsImpl.SWITCH_EXPRESSION, classFileVersion)) {
                 Op04StructuredStatement.switchExpression(method, block, comments);
+                timer.done("Op04StructuredStatement.switchExpression");
             }
 
             Op04StructuredStatement.rewriteLambdas(dcCommonState, method, block);
+            timer.done("Op04StructuredStatement.rewriteLambdas");
             // Now lambdas have been rewritten, reprocess ONLY to insert local class
             // definitions.
             // Note that local class definitions are removed at the point of lambda rewrite.
             Op04StructuredStatement.discoverLocalClassScopes(method, block, variableFactory, options);
+            timer.done("Op04StructuredStatement.discoverLocalClassScopes");
                                             
             if (options.getOption(OptionsImpl.REMOVE_BOILERPLATE)) {
                 // Note - we ALSO try to do this in whole pass analysis.
                 if (this.method.isConstructor()) {
                     Op04StructuredStatement.removeConstructorBoilerplate(block);
+                    timer.done("Op04StructuredStatement.removeConstructorBoilerplate");
                 }
             }
 
             // Some misc translations.
             Op04StructuredStatement.removeUnnecessaryVarargArrays(options, method, block);
+            timer.done("Op04StructuredStatement.removeUnnecessaryVarargArrays");
 
             Op04StructuredStatement.removePrimitiveDeconversion(options, method, block);
+            timer.done("Op04StructuredStatement.removePrimitiveDeconversion");
             // After the final boxing rewrite, go back and check for inconvertible type cast
             // chains.  (BoxingTest37b)
             Op04StructuredStatement.rewriteBadCastChains(options, method, block);
+            timer.done("Op04StructuredStatement.rewriteBadCastChains");
             // Or narrowing casts which are no longer needed because boxed assignments allow them.
             Op04StructuredStatement.rewriteNarrowingAssignments(options, method, block);
+            timer.done("Op04StructuredStatement.rewriteNarrowingAssignments");
 
             // Tidy variable names
             Op04StructuredStatement.tidyVariableNames(method, block, bytecodeMeta, comments, cp.getClassCache());
+            timer.done("Op04StructuredStatement.tidyVariableNames");
 
             Op04StructuredStatement.miscKeyholeTransforms(variableFactory, block);
+            timer.done("Op04StructuredStatement.miscKeyholeTransforms");
 
             /*
              * Now finally run some extra checks to spot wierdness.
              */
             Op04StructuredStatement.applyChecker(new LooseCatchChecker(), block, comments);
+            timer.done("Op04StructuredStatement.applyChecker(LooseCatchChecker)");
             Op04StructuredStatement.applyChecker(new VoidVariableChecker(), block, comments);
+            timer.done("Op04StructuredStatement.applyChecker(VoidVariableChecker)");
             Op04StructuredStatement.applyChecker(new IllegalReturnChecker(), block, comments);
+            timer.done("Op04StructuredStatement.applyChecker(IllegalReturnChecker)");
 
             Op04StructuredStatement.flattenNonReferencedBlocks(block);
+            timer.done("Op04StructuredStatement.flattenNonReferencedBlocks");
 
             Op04StructuredStatement.reduceClashDeclarations(block, bytecodeMeta);
+            timer.done("Op04StructuredStatement.reduceClashDeclarations");
 
             /*
              * And apply any type annotations we can.
              */
             Op04StructuredStatement.applyTypeAnnotations(originalCodeAttribute, block, lutByOffset, comments);
+            timer.done("Op04StructuredStatement.applyTypeAnnotations");
         }
 
         // Only check for type clashes on first pass.
@@ -919,23 +1356,24 @@ public class CodeAnalyser {
             if (Op04StructuredStatement.checkTypeClashes(block, bytecodeMeta)) {
                 comments.addComment(DecompilerComment.TYPE_CLASHES);
             }
+            timer.done("Op04StructuredStatement.checkTypeClashes");
         }
 
         return new AnalysisResultSuccessful(comments, block, anonymousClassUsage);
     }
 
-    private void generateUnverifiable(int x, List<Op01WithProcessedDataAndByteJumps> op1list, List<Op02WithProcessedDataAndRefs> op2list, Map<Integer, Integer> lutByIdx, SortedMap<Integer, Integer> lutByOffset, BytecodeLocFactory locFactory) {
+    private void generateUnverifiable(int x, List<Op01WithProcessedDataAndByteJumps> op1list, List<Op02WithProcessedDataAndRefs> op2list, IntIntMap lutByIdx, IntSortedMap lutByOffset, BytecodeLocFactory locFactory) {
         Op01WithProcessedDataAndByteJumps instr = op1list.get(x);
         int thisRaw = instr.getOriginalRawOffset();
         int[] thisTargets = instr.getRawTargetOffsets();
         for (int target : thisTargets) {
-            if (null == lutByOffset.get(target + thisRaw)) {
+            if (!lutByOffset.containsKey(target + thisRaw)) {
                 generateUnverifiableInstr(target + thisRaw, op1list, op2list, lutByIdx, lutByOffset, locFactory);
             }
         }
     }
 
-    private void generateUnverifiableInstr(int offset, List<Op01WithProcessedDataAndByteJumps> op1list, List<Op02WithProcessedDataAndRefs> op2list, Map<Integer, Integer> lutByIdx, SortedMap<Integer, Integer> lutByOffset, BytecodeLocFactory locFactory) {
+    private void generateUnverifiableInstr(int offset, List<Op01WithProcessedDataAndByteJumps> op1list, List<Op02WithProcessedDataAndRefs> op2list, IntIntMap lutByIdx, IntSortedMap lutByOffset, BytecodeLocFactory locFactory) {
         ByteData rawData = originalCodeAttribute.getRawData();
         int codeLength = originalCodeAttribute.getCodeLength();
         do {
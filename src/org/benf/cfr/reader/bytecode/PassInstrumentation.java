@@ -0,0 +1,265 @@
+package org.benf.cfr.reader.bytecode;
+
+import org.benf.cfr.reader.entities.Method;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Where does the time go?  Records wall time, bytes allocated (by this thread) and invocation count of
+ * each pass of CodeAnalyser, per method and per recovery pass (see option 'instrumentpasses').
+ *
+ * Each call to CodeAnalyser marks the end of a pass with Timer.done - whatever happened since the
+ * previous mark is charged to that pass.  So a pass which analyses other methods (eg inlining lambdas)
+ * includes their cost as well.
+ *
+ * Allocation is only available on JVMs which provide com.sun.management.ThreadMXBean - otherwise it's
+ * reported as 0 (and allocationSupported is false).
+ */
+public class PassInstrumentation {
+    private final Map<String, MethodPass> methodPasses = MapFactory.newOrderedMap();
+
+    /*
+     * Null if we've not been asked for it.
+     */
+    public static PassInstrumentation create(Options options) {
+        if (!options.getOption(OptionsImpl.INSTRUMENT_PASSES) && !options.optionIsSet(OptionsImpl.PASS_REPORT)) {
+            return null;
+        }
+        return new PassInstrumentation();
+    }
+
+    /*
+     * A no-op timer if instrumentation is null, so callers don't have to care.
+     */
+    public static Timer start(PassInstrumentation instrumentation, Method method, int passIdx) {
+        if (instrumentation == null) return Timer.NONE;
+        return new Timer(instrumentation.getMethodPass(method, passIdx));
+    }
+
+    private synchronized MethodPass getMethodPass(Method method, int passIdx) {
+        String className = method.getClassFile().getClassType().getRawName();
+        String name = method.getName();
+        String descriptor = method.getDescriptor();
+        String key = className + ' ' + name + ' ' + descriptor + ' ' + passIdx;
+        MethodPass res = methodPasses.get(key);
+        if (res == null) {
+            res = new MethodPass(className, name, descriptor, passIdx);
+            methodPasses.put(key, res);
+        }
+        return res;
+    }
+
+    public static class Timer {
+        private static final Timer NONE = new Timer(null);
+
+        private final MethodPass methodPass;
+        private long lastTime;
+        private long lastAllocated;
+
+        private Timer(MethodPass methodPass) {
+            this.methodPass = methodPass;
+            if (methodPass == null) return;
+            this.lastTime = System.nanoTime();
+            this.lastAllocated = Allocation.get();
+        }
+
+        public void done(String pass) {
+            if (methodPass == null) return;
+            long time = System.nanoTime();
+            long allocated = Allocation.get();
+            methodPass.add(pass, time - lastTime, allocated - lastAllocated);
+            // Don't charge our own bookkeeping to the next pass.
+            lastTime = System.nanoTime();
+            lastAllocated = Allocation.get();
+        }
+    }
+
+    private static class MethodPass {
+        private final String className;
+        private final String name;
+        private final String descriptor;
+        private final int passIdx;
+        // In the order they're first run.
+        private final Map<String, Stats> stats = MapFactory.newOrderedMap();
+
+        private MethodPass(String className, String name, String descriptor, int passIdx) {
+            this.className = className;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.passIdx = passIdx;
+        }
+
+        synchronized void add(String pass, long nanos, long bytes) {
+            Stats s = stats.get(pass);
+            if (s == null) {
+                s = new Stats(pass);
+                stats.put(pass, s);
+            }
+            s.add(1, nanos, bytes);
+        }
+
+        synchronized List<Stats> getStats() {
+            List<Stats> res = ListFactory.newList();
+            for (Stats s : stats.values()) {
+                res.add(s.copy());
+            }
+            return res;
+        }
+    }
+
+    private static class Stats {
+        private final String pass;
+        private long count;
+        private long nanos;
+        private long bytes;
+
+        private Stats(String pass) {
+            this.pass = pass;
+        }
+
+        void add(long count, long nanos, long bytes) {
+            this.count += count;
+            this.nanos += nanos;
+            this.bytes += bytes;
+        }
+
+        Stats copy() {
+            Stats res = new Stats(pass);
+            res.add(count, nanos, bytes);
+            return res;
+        }
+
+        void toJson(StringBuilder sb) {
+            sb.append("{\"pass\": ").append(jsonString(pass))
+                    .append(", \"count\": ").append(count)
+                    .append(", \"nanos\": ").append(nanos)
+                    .append(", \"bytes\": ").append(bytes)
+                    .append('}');
+        }
+    }
+
+    /*
+     * Per method and recovery pass, followed by totals for each pass over everything, most expensive first.
+     */
+    public String toJson() {
+        List<MethodPass> snapshot;
+        synchronized (this) {
+            snapshot = ListFactory.newList(methodPasses.values());
+        }
+        Map<String, Stats> totals = MapFactory.newOrderedMap();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"allocationSupported\": ").append(Allocation.isSupported()).append(",\n");
+        sb.append("  \"methods\": [");
+        boolean first = true;
+        for (MethodPass methodPass : snapshot) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    {\"class\": ").append(jsonString(methodPass.className))
+                    .append(", \"method\": ").append(jsonString(methodPass.name))
+                    .append(", \"descriptor\": ").append(jsonString(methodPass.descriptor))
+                    .append(", \"recoveryPass\": ").append(methodPass.passIdx)
+                    .append(", \"passes\": [");
+            boolean firstStats = true;
+            for (Stats stats : methodPass.getStats()) {
+                sb.append(firstStats ? "\n" : ",\n");
+                firstStats = false;
+                sb.append("      ");
+                stats.toJson(sb);
+                Stats total = totals.get(stats.pass);
+                if (total == null) {
+                    total = new Stats(stats.pass);
+                    totals.put(stats.pass, total);
+                }
+                total.add(stats.count, stats.nanos, stats.bytes);
+            }
+            sb.append("]}");
+        }
+        sb.append("\n  ],\n");
+
+        List<Stats> sortedTotals = ListFactory.newList(totals.values());
+        Collections.sort(sortedTotals, new Comparator<Stats>() {
+            @Override
+            public int compare(Stats a, Stats b) {
+                return a.nanos < b.nanos ? 1 : (a.nanos == b.nanos ? 0 : -1);
+            }
+        });
+        sb.append("  \"totals\": [");
+        first = true;
+        for (Stats total : sortedTotals) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    ");
+            total.toJson(sb);
+        }
+        sb.append("\n  ]\n}\n");
+        return sb.toString();
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int x = 0, len = s.length(); x < len; ++x) {
+            char c = s.charAt(x);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+        return sb.toString();
+    }
+
+    /*
+     * Not every JVM has com.sun.management, so we go via reflection rather than linking against it.
+     */
+    private static class Allocation {
+        private static final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        private static final java.lang.reflect.Method getAllocated = getAllocatedMethod();
+
+        private static java.lang.reflect.Method getAllocatedMethod() {
+            try {
+                Class<?> clazz = Class.forName("com.sun.management.ThreadMXBean");
+                if (!clazz.isInstance(bean)) return null;
+                if (!(Boolean) clazz.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) return null;
+                clazz.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true);
+                return clazz.getMethod("getThreadAllocatedBytes", long.class);
+            } catch (Exception e) {
+                return null;
+            } catch (LinkageError e) {
+                return null;
+            }
+        }
+
+        static boolean isSupported() {
+            return getAllocated != null;
+        }
+
+        static long get() {
+            if (getAllocated == null) return 0;
+            try {
+                return (Long) getAllocated.invoke(bean, Thread.currentThread().getId());
+            } catch (Exception e) {
+                return 0;
+            }
+        }
+    }
+}
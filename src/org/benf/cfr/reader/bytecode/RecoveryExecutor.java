@@ -0,0 +1,32 @@
+package org.benf.cfr.reader.bytecode;
+
+import org.benf.cfr.reader.util.DaemonThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Pool used to run recovery passes speculatively.  Shared by every method being analysed (possibly from
+ * several analysis threads), and idle workers die off, as recovery is (hopefully!) rare.
+ *
+ * If we're asked for a different size, we just start a new pool - the old one may still be in use by
+ * someone, so we leave it to time out.
+ */
+class RecoveryExecutor {
+    private static final long IDLE_SECONDS = 5;
+
+    private static ExecutorService executor;
+    private static int executorThreads;
+
+    static synchronized ExecutorService get(int threads) {
+        if (executor == null || executorThreads != threads) {
+            ThreadPoolExecutor created = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+            created.allowCoreThreadTimeOut(true);
+            executor = created;
+            executorThreads = threads;
+        }
+        return executor;
+    }
+}
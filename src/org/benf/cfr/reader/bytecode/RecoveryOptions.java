@@ -32,6 +32,15 @@ public class RecoveryOptions {
             this.comments = comments;
             this.valid = valid;
         }
+
+        /*
+         * Would a pass run with these options be run the same way as with other's?
+         */
+        public boolean sameOptionsAs(Applied other) {
+            if (options == other.options) return true;
+            if (!(options instanceof MutableOptions) || !(other.options instanceof MutableOptions)) return false;
+            return ((MutableOptions) options).sameAs((MutableOptions) other.options);
+        }
     }
 
     public Applied apply(DCCommonState commonState, Options originalOptions, BytecodeMeta bytecodeMeta) {
@@ -41,6 +50,8 @@ public class RecoveryOptions {
         for (RecoveryOption<?> option : recoveryOptions) {
             if (option.apply(mutableOptions, appliedComments, bytecodeMeta)) hadEffect = true;
         }
-        return new Applied(mutableOptions, appliedComments, hadEffect);
+        // Nothing overridden - just use the originals.
+        Options options = mutableOptions.isEmpty() ? originalOptions : mutableOptions;
+        return new Applied(options, appliedComments, hadEffect);
     }
 }
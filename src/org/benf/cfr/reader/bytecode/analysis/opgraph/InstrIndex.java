@@ -1,11 +1,15 @@
 package org.benf.cfr.reader.bytecode.analysis.opgraph;
 
-import java.util.LinkedList;
-
 public class InstrIndex implements Comparable<InstrIndex> {
     private final int index;
     //    private final int subindex; // for renumbering, etc.
     private TempRelatives tempList;
+    /*
+     * Order amongst temporaries sharing our index - see TempRelatives.
+     */
+    private long label;
+    private InstrIndex prevRelative;
+    private InstrIndex nextRelative;
 
     public InstrIndex(int index) {
         this.index = index;
@@ -20,7 +24,7 @@ public class InstrIndex implements Comparable<InstrIndex> {
 
     private int idx() {
         if (tempList == null) return 0;
-        return tempList.indexOf(this);
+        return tempList.positionOf(this);
     }
 
     @Override
@@ -36,8 +40,7 @@ public class InstrIndex implements Comparable<InstrIndex> {
         if (tempList != other.tempList) {
             throw new IllegalStateException("Bad templists");
         }
-        a = idx() - other.idx();
-        return a;
+        return label < other.label ? -1 : (label == other.label ? 0 : 1);
     }
 
     // NOTE DELIBERATE USE OF OBJECT HASH AND EQUALS.
@@ -92,25 +95,74 @@ public class InstrIndex implements Comparable<InstrIndex> {
     }
 
 
+    /*
+     * Temporaries which share an index are ordered by label, so that comparing them is cheap - we
+     * compare an awful lot more than we insert.  New labels are taken from the gap between
+     * neighbours; when there isn't one, the whole group is respaced.
+     */
     private static class TempRelatives {
-        private final LinkedList<InstrIndex> rels = new LinkedList<InstrIndex>();
+        private static final long GAP = 1L << 20;
+
+        private InstrIndex first;
 
         TempRelatives(InstrIndex start) {
-            rels.add(start);
+            first = start;
+            start.label = 0;
         }
 
-        public int indexOf(InstrIndex i) {
-            return rels.indexOf(i);
+        /*
+         * Only needed for display, so it's fine for this to be linear.
+         */
+        public int positionOf(InstrIndex i) {
+            int res = 0;
+            for (InstrIndex curr = first; curr != null; curr = curr.nextRelative) {
+                if (curr == i) return res;
+                res++;
+            }
+            return -1;
         }
 
         public void before(InstrIndex than, InstrIndex isBefore) {
-            int idx = rels.indexOf(than);
-            rels.add(idx, isBefore);
+            InstrIndex prev = than.prevRelative;
+            if (prev == null) {
+                isBefore.label = than.label - GAP;
+                first = isBefore;
+            } else if (than.label - prev.label < 2) {
+                respace();
+                before(than, isBefore);
+                return;
+            } else {
+                isBefore.label = prev.label + (than.label - prev.label) / 2;
+                prev.nextRelative = isBefore;
+            }
+            isBefore.prevRelative = prev;
+            isBefore.nextRelative = than;
+            than.prevRelative = isBefore;
+        }
+
+        public void after(InstrIndex than, InstrIndex isAfter) {
+            InstrIndex next = than.nextRelative;
+            if (next == null) {
+                isAfter.label = than.label + GAP;
+            } else if (next.label - than.label < 2) {
+                respace();
+                after(than, isAfter);
+                return;
+            } else {
+                isAfter.label = than.label + (next.label - than.label) / 2;
+                next.prevRelative = isAfter;
+            }
+            isAfter.nextRelative = next;
+            isAfter.prevRelative = than;
+            than.nextRelative = isAfter;
         }
 
-        public void after(InstrIndex than, InstrIndex isBefore) {
-            int idx = rels.indexOf(than);
-            rels.add(idx + 1, isBefore);
+        private void respace() {
+            long label = 0;
+            for (InstrIndex curr = first; curr != null; curr = curr.nextRelative) {
+                curr.label = label;
+                label += GAP;
+            }
         }
     }
 }
@@ -6,8 +6,8 @@ import org.benf.cfr.reader.entities.Method;
 import org.benf.cfr.reader.entities.constantpool.ConstantPool;
 import org.benf.cfr.reader.entities.constantpool.ConstantPoolEntry;
 import org.benf.cfr.reader.util.UnverifiableJumpException;
+import org.benf.cfr.reader.util.collections.IntSortedMap;
 
-import java.util.Map;
 
 public class Op01WithProcessedDataAndByteJumps {
     private final JVMInstr instruction;
@@ -55,7 +55,7 @@ public class Op01WithProcessedDataAndByteJumps {
         return new Op02WithProcessedDataAndRefs(instruction, data, index, cp, constantPoolEntries, originalRawOffset, locFactory.at(originalRawOffset, method));
     }
 
-    public int[] getAbsoluteIndexJumps(int thisOpByteIndex, Map<Integer, Integer> lutByOffset) {
+    public int[] getAbsoluteIndexJumps(int thisOpByteIndex, IntSortedMap lutByOffset) {
         int thisOpInstructionIndex = lutByOffset.get(thisOpByteIndex);
         if (rawTargetOffsets == null) {
             return new int[]{thisOpInstructionIndex + 1};
@@ -66,8 +66,8 @@ public class Op01WithProcessedDataAndByteJumps {
         int[] targetIndexes = new int[rawTargetOffsets.length];
         for (int x = 0; x < rawTargetOffsets.length; ++x) {
             int targetRawAddress = thisOpByteIndex + rawTargetOffsets[x];
-            Integer targetIndex = lutByOffset.get(targetRawAddress);
-            if (targetIndex == null) {
+            int targetIndex = lutByOffset.get(targetRawAddress, -1);
+            if (targetIndex == -1) {
                 // Oh this is fun.  We have a jump-to-middle of instruction.
                 // (https://anthony.som.codes/blog/2019-12-30-jvm-hackery-noverify/)
                 throw new UnverifiableJumpException();
@@ -2,6 +2,7 @@ package org.benf.cfr.reader.bytecode.analysis.opgraph;
 
 import org.benf.cfr.reader.bytecode.analysis.loc.BytecodeLoc;
 import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+import org.benf.cfr.reader.bytecode.AnalysisBudget;
 import org.benf.cfr.reader.bytecode.BytecodeMeta;
 import org.benf.cfr.reader.bytecode.analysis.opgraph.op2rewriters.TypeHintRecovery;
 import org.benf.cfr.reader.bytecode.analysis.variables.Ident;
@@ -49,13 +50,14 @@ import org.benf.cfr.reader.util.graph.GraphVisitorDFS;
 import org.benf.cfr.reader.util.graph.GraphVisitorFIFO;
 import org.benf.cfr.reader.util.lambda.LambdaUtils;
 import org.benf.cfr.reader.util.output.*;
+import org.benf.cfr.reader.util.collections.IntSortedMap;
+import org.benf.cfr.reader.util.collections.IntSet;
 
 import java.util.*;
-import java.util.logging.Logger;
 
 @SuppressWarnings("StatementWithEmptyBody")
 public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithProcessedDataAndRefs> {
-    private static final Logger logger = LoggerFactory.create(Op02WithProcessedDataAndRefs.class);
+    private static final LazyLogger logger = LoggerFactory.createLazy(Op02WithProcessedDataAndRefs.class);
 
     private InstrIndex index;
 
@@ -1685,7 +1687,7 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
         }
         statements.get(0).ssaIdentifiers = new SSAIdentifiers<Slot>(idents);
 
-        final Set<Integer> livenessClashes = bytecodeMeta.getLivenessClashes();
+        final IntSet livenessClashes = bytecodeMeta.getLivenessClashes();
 
         final BinaryPredicate<Slot, Slot> testSlot = new BinaryPredicate<Slot, Slot>() {
             @Override
@@ -1896,7 +1898,7 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
                 }
         );
 
-        final Set<Integer> livenessClashes = bytecodeMeta.getLivenessClashes();
+        final IntSet livenessClashes = bytecodeMeta.getLivenessClashes();
 
         for (Op02WithProcessedDataAndRefs op : op2list) {
             SSAIdentifiers<Slot> identifiers = op.ssaIdentifiers;
@@ -2131,8 +2133,8 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
             return infrontOf;
         }
 
-        logger.finer("Adding " + newNode + " ident " + exceptionGroup.getTryBlockIdentifier());
-        logger.finer("Already have " + collides);
+        logger.finer("Adding {} ident {}", newNode, exceptionGroup.getTryBlockIdentifier());
+        logger.finer("Already have {}", collides);
 
 
         // If there's already something, we need to figure out which belongs in what order.
@@ -2150,7 +2152,7 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
         }
 
         Op02WithProcessedDataAndRefs afterThis;
-        logger.finer("Insertion position = " + insertionPos);
+        logger.finer("Insertion position = {}", insertionPos);
 
         if (insertionPos == collides.size()) { // end.
             collides.add(exceptionTempStatement);
@@ -2178,21 +2180,21 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
                 ExceptionTempStatement et = ets.get(idx);
                 if (et.isTry()) {
                     BlockIdentifier tryGroup = et.triggeringGroup.getTryBlockIdentifier();
-                    logger.finer("Removing try group identifier " + tryGroup + " idx " + idx);
+                    logger.finer("Removing try group identifier {} idx {}", tryGroup, idx);
                     for (int idx2 = 0; idx2 < idx; ++idx2) {
-                        logger.finest("" + ets.get(idx2).getOp());
-                        logger.finest("" + ets.get(idx2).getOp().containedInTheseBlocks + " -->");
+                        logger.finest("{}", ets.get(idx2).getOp());
+                        logger.finest("{} -->", ets.get(idx2).getOp().containedInTheseBlocks);
                         ets.get(idx2).getOp().containedInTheseBlocks.remove(tryGroup);
-                        logger.finest("" + ets.get(idx2).getOp().containedInTheseBlocks);
+                        logger.finest("{}", ets.get(idx2).getOp().containedInTheseBlocks);
                     }
                 }
             }
         }
     }
 
-    private static int getLastIndex(Map<Integer, Integer> lutByOffset, int op2count, long codeLength, int offset) {
-        Integer iinclusiveLastIndex = lutByOffset.get(offset);
-        if (iinclusiveLastIndex == null) {
+    private static int getLastIndex(IntSortedMap lutByOffset, int op2count, long codeLength, int offset) {
+        int iinclusiveLastIndex = lutByOffset.get(offset, -1);
+        if (iinclusiveLastIndex == -1) {
             if (offset == codeLength) {
                 iinclusiveLastIndex = op2count - 1;
             } else {
@@ -2205,7 +2207,7 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
     public static List<Op02WithProcessedDataAndRefs> insertExceptionBlocks(
             List<Op02WithProcessedDataAndRefs> op2list,
             ExceptionAggregator exceptions,
-            Map<Integer, Integer> lutByOffset,
+            IntSortedMap lutByOffset,
             ConstantPool cp,
             long codeLength,
             Options options
@@ -2459,10 +2461,10 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
      *
      * PROBLEM : what if a store is a common target of a goto after two JSR targets?
      */
-    public static boolean processJSR(List<Op02WithProcessedDataAndRefs> ops) {
+    public static boolean processJSR(List<Op02WithProcessedDataAndRefs> ops, AnalysisBudget budget) {
         List<Op02WithProcessedDataAndRefs> jsrInstrs = justJSRs(ops);
         if (jsrInstrs.isEmpty()) return false;
-        processJSRs(jsrInstrs, ops);
+        processJSRs(jsrInstrs, ops, budget);
         return true;
     }
 
@@ -2489,7 +2491,7 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
         return op;
     }
 
-    private static void processJSRs(List<Op02WithProcessedDataAndRefs> jsrs, List<Op02WithProcessedDataAndRefs> ops) {
+    private static void processJSRs(List<Op02WithProcessedDataAndRefs> jsrs, List<Op02WithProcessedDataAndRefs> ops, AnalysisBudget budget) {
         /* try seeing if we have multiple JSRs that jump to the same place, and afterwards end up in the
          * same place also - if so, these are all effectively a single JSR, and all but one can be replaced with a
          * goto the first.
@@ -2573,6 +2575,8 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
             inlineCandidates.addAll(nodes);
 
             inlineJSR(target, nodes, ops);
+            // Nested subroutines are copied for each call site - this can get out of hand.
+            budget.check(ops.size());
         }
 
         jsrs = justJSRs(ops);
@@ -1,5 +1,6 @@
 package org.benf.cfr.reader.bytecode.analysis.opgraph;
 
+import org.benf.cfr.reader.bytecode.AnalysisBudget;
 import org.benf.cfr.reader.bytecode.analysis.loc.BytecodeLoc;
 import org.benf.cfr.reader.bytecode.analysis.opgraph.op3rewriters.Cleaner;
 import org.benf.cfr.reader.bytecode.analysis.opgraph.op3rewriters.ExactTypeFilter;
@@ -876,7 +877,7 @@ public class Op03Blocks {
         return Functional.filter(blocks, new Functional.NotNull<Block3>());
     }
 
-    public static List<Op03SimpleStatement> topologicalSort(final List<Op03SimpleStatement> statements, final DecompilerComments comments, final Options options) {
+    public static List<Op03SimpleStatement> topologicalSort(final List<Op03SimpleStatement> statements, final DecompilerComments comments, final Options options, final AnalysisBudget budget) {
 
         List<Block3> blocks = buildBasicBlocks(statements);
 
@@ -896,9 +897,11 @@ public class Op03Blocks {
 
         if (options.getOption(OptionsImpl.FORCE_TOPSORT_EXTRA) == Troolean.TRUE) {
             blocks = addTryEndDependencies(blocks);
+            budget.checkTime();
         }
 
         blocks = doTopSort(blocks);
+        budget.checkTime();
 
         /*
          * A (very) cheap version of location based loop discovery, where we find blocks which appear to have
@@ -913,6 +916,7 @@ public class Op03Blocks {
         if (redo) {
             Collections.sort(blocks);
             blocks = doTopSort(blocks);
+            budget.checkTime();
         }
 
         /*
@@ -38,13 +38,14 @@ import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
 import org.benf.cfr.reader.util.output.Dumpable;
 import org.benf.cfr.reader.util.output.Dumper;
+import org.benf.cfr.reader.util.output.LazyLogger;
 import org.benf.cfr.reader.util.output.LoggerFactory;
+import org.benf.cfr.reader.util.collections.IntSortedMap;
 
 import java.util.*;
-import java.util.logging.Logger;
 
 public class Op04StructuredStatement implements MutableGraph<Op04StructuredStatement>, Dumpable, StatementContainer<StructuredStatement>, TypeUsageCollectable {
-    private static final Logger logger = LoggerFactory.create(Op04StructuredStatement.class);
+    private static final LazyLogger logger = LoggerFactory.createLazy(Op04StructuredStatement.class);
     private InstrIndex instrIndex;
     // Should we be bothering with sources and targets?  Not once we're "Properly" structured...
     private List<Op04StructuredStatement> sources = ListFactory.newList();
@@ -324,7 +325,7 @@ public class Op04StructuredStatement implements MutableGraph<Op04StructuredState
     public void removeLastContinue(BlockIdentifier block) {
         if (structuredStatement instanceof Block) {
             boolean removed = ((Block) structuredStatement).removeLastContinue(block);
-            logger.info("Removing last continue for " + block + " succeeded? " + removed);
+            logger.info("Removing last continue for {} succeeded? {}", block, removed);
         } else {
             throw new ConfusedCFRException("Trying to remove last continue, but statement isn't block");
         }
@@ -423,7 +424,7 @@ public class Op04StructuredStatement implements MutableGraph<Op04StructuredState
             final Stack<BlockIdentifier> blocksCurrentlyIn,
             final Stack<StackedBlock> stackedBlocks,
             final MutableProcessingBlockState mutableProcessingBlockState) {
-        logger.fine("statement is last statement in these blocks " + endOfTheseBlocks);
+        logger.fine("statement is last statement in these blocks {}", endOfTheseBlocks);
 
         while (!endOfTheseBlocks.isEmpty()) {
             if (mutableProcessingBlockState.currentBlockIdentifier == null) {
@@ -485,7 +486,7 @@ public class Op04StructuredStatement implements MutableGraph<Op04StructuredState
 
             BlockIdentifier startsThisBlock = getStartingBlocks(blocksCurrentlyIn, container.blockMembership);
             if (startsThisBlock != null) {
-                logger.fine("Starting block " + startsThisBlock);
+                logger.fine("Starting block {}", startsThisBlock);
                 BlockType blockType = startsThisBlock.getBlockType();
                 // A bit confusing.  StartBlock for a while loop is the test.
                 // StartBlock for conditionals is the first element of the conditional.
@@ -721,7 +722,7 @@ public class Op04StructuredStatement implements MutableGraph<Op04StructuredState
         }
     }
 
-    public static void applyTypeAnnotations(AttributeCode code, Op04StructuredStatement root, SortedMap<Integer, Integer> instrsByOffset,
+    public static void applyTypeAnnotations(AttributeCode code, Op04StructuredStatement root, IntSortedMap instrsByOffset,
                                             DecompilerComments comments) {
         AttributeTypeAnnotations vis = code.getRuntimeVisibleTypeAnnotations();
         AttributeTypeAnnotations invis = code.getRuntimeInvisibleTypeAnnotations();
@@ -763,14 +764,19 @@ public class Op04StructuredStatement implements MutableGraph<Op04StructuredState
         new TypedBooleanTidier().transform(root);
     }
 
+    /*
+     * These are all local, so are run in a single walk.
+     */
     public static void miscKeyholeTransforms(VariableFactory variableFactory, Op04StructuredStatement root) {
-        new NakedNullCaster().transform(root);
-        new LambdaCleaner().transform(root);
-        new TernaryCastCleaner().transform(root);
-        new InvalidBooleanCastCleaner().transform(root);
-        new HexLiteralTidier().transform(root);
-        new ExpressionRewriterTransformer(LiteralRewriter.INSTANCE).transform(root);
-        new InvalidExpressionStatementCleaner(variableFactory).transform(root);
+        new StructuredTransformPipeline()
+                .add(new NakedNullCaster())
+                .add(new LambdaCleaner())
+                .add(new TernaryCastCleaner())
+                .add(new InvalidBooleanCastCleaner())
+                .add(new HexLiteralTidier())
+                .addExpressionRewriter(LiteralRewriter.INSTANCE)
+                .add(new InvalidExpressionStatementCleaner(variableFactory))
+                .transform(root);
     }
 
     public static void prettifyBadLoops(Op04StructuredStatement root) {
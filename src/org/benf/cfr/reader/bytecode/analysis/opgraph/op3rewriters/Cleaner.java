@@ -53,7 +53,7 @@ public class Cleaner {
         });
         gv.process();
 
-        List<Op03SimpleStatement> result = ListFactory.newList();
+        List<Op03SimpleStatement> result = ListFactory.newIndexedList();
         for (Op03SimpleStatement statement : statements) {
             if (reachable.contains(statement)) {
                 result.add(statement);
@@ -76,7 +76,7 @@ public class Cleaner {
 */
     public static List<Op03SimpleStatement> sortAndRenumber(List<Op03SimpleStatement> statements) {
         boolean nonNopSeen = false;
-        List<Op03SimpleStatement> result = ListFactory.newList();
+        List<Op03SimpleStatement> result = ListFactory.newIndexedList();
         for (Op03SimpleStatement statement : statements) {
             boolean thisIsNop = statement.isAgreedNop();
             if (!nonNopSeen) {
@@ -117,16 +117,16 @@ public class GenericInferer {
             return;
         }
 
-        Map<Integer, List<MemberFunctionInvokation>> byTypKey = MapFactory.newTreeMap();
-        Functional.groupToMapBy(memberFunctionInvokations, byTypKey, new UnaryFunction<MemberFunctionInvokation, Integer>() {
+        Map<Long, List<MemberFunctionInvokation>> byTypKey = MapFactory.newTreeMap();
+        Functional.groupToMapBy(memberFunctionInvokations, byTypKey, new UnaryFunction<MemberFunctionInvokation, Long>() {
             @Override
-            public Integer invoke(MemberFunctionInvokation arg) {
+            public Long invoke(MemberFunctionInvokation arg) {
                 return arg.getObject().getInferredJavaType().getLocalId();
             }
         });
 
         invokationGroup:
-        for (Map.Entry<Integer, List<MemberFunctionInvokation>> entry : byTypKey.entrySet()) {
+        for (Map.Entry<Long, List<MemberFunctionInvokation>> entry : byTypKey.entrySet()) {
             List<MemberFunctionInvokation> invokations = entry.getValue();
             if (invokations.isEmpty()) continue;
 
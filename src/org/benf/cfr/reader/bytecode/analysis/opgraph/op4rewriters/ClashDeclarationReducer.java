@@ -14,9 +14,9 @@ import org.benf.cfr.reader.bytecode.analysis.structured.statement.StructuredAssi
 import org.benf.cfr.reader.bytecode.analysis.structured.statement.StructuredComment;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
 import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.IntSet;
 
 import java.util.List;
-import java.util.Set;
 
 /* If we've crippled lifetime checking to handle a clash we can't resolve, then
  * we can, at least, tidy
@@ -33,9 +33,9 @@ import java.util.Set;
  * (it's probably possible to keep an arbitrary name, however we can't rely on SSA to determine this of course)
  */
 public class ClashDeclarationReducer extends AbstractExpressionRewriter implements StructuredStatementTransformer {
-    private final Set<Integer> clashes;
+    private final IntSet clashes;
 
-    public ClashDeclarationReducer(Set<Integer> clashes) {
+    public ClashDeclarationReducer(IntSet clashes) {
         this.clashes = clashes;
     }
 
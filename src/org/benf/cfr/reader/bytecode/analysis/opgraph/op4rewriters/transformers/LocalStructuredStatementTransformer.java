@@ -0,0 +1,18 @@
+package org.benf.cfr.reader.bytecode.analysis.opgraph.op4rewriters.transformers;
+
+import org.benf.cfr.reader.bytecode.analysis.structured.StructuredScope;
+import org.benf.cfr.reader.bytecode.analysis.structured.StructuredStatement;
+
+/*
+ * A transformer which only ever looks at (and changes) the statement it's given - not its children, parent or
+ * neighbours, and which doesn't carry anything from one statement to the next.
+ *
+ * As it doesn't matter what's been done to the rest of the tree, or in which order statements are visited,
+ * several of these can share a single walk of the tree - see StructuredTransformPipeline.
+ */
+public interface LocalStructuredStatementTransformer extends StructuredStatementTransformer {
+    /*
+     * Transform just this statement - don't recurse.
+     */
+    StructuredStatement transformLocal(StructuredStatement in, StructuredScope scope);
+}
@@ -0,0 +1,80 @@
+package org.benf.cfr.reader.bytecode.analysis.opgraph.op4rewriters.transformers;
+
+import org.benf.cfr.reader.bytecode.analysis.opgraph.Op04StructuredStatement;
+import org.benf.cfr.reader.bytecode.analysis.parse.rewriters.ExpressionRewriter;
+import org.benf.cfr.reader.bytecode.analysis.structured.StructuredScope;
+import org.benf.cfr.reader.bytecode.analysis.structured.StructuredStatement;
+import org.benf.cfr.reader.util.collections.ListFactory;
+
+import java.util.List;
+
+/*
+ * A sequence of transformers, to be applied to a tree one after another.
+ *
+ * Where consecutive transformers are local (see LocalStructuredStatementTransformer), they're run together in
+ * one walk - each statement has all of them applied, in order, once its children are done.  The result is the
+ * same as if they'd each walked the tree, but big methods are walked far fewer times.  Anything else gets a
+ * walk of its own, in sequence.
+ */
+public class StructuredTransformPipeline {
+    private final List<StructuredStatementTransformer> walks = ListFactory.newList();
+    private FusedTransformer current;
+
+    public StructuredTransformPipeline add(StructuredStatementTransformer transformer) {
+        if (transformer instanceof LocalStructuredStatementTransformer) {
+            if (current == null) {
+                current = new FusedTransformer();
+                walks.add(current);
+            }
+            current.transformers.add((LocalStructuredStatementTransformer) transformer);
+        } else {
+            current = null;
+            walks.add(transformer);
+        }
+        return this;
+    }
+
+    /*
+     * Rewriting the expressions of a statement is local - as long as the rewriter is.
+     */
+    public StructuredTransformPipeline addExpressionRewriter(final ExpressionRewriter expressionRewriter) {
+        return add(new LocalStructuredStatementTransformer() {
+            @Override
+            public StructuredStatement transformLocal(StructuredStatement in, StructuredScope scope) {
+                in.rewriteExpressions(expressionRewriter);
+                return in;
+            }
+
+            @Override
+            public StructuredStatement transform(StructuredStatement in, StructuredScope scope) {
+                in.transformStructuredChildren(this, scope);
+                return transformLocal(in, scope);
+            }
+        });
+    }
+
+    public void transform(Op04StructuredStatement root) {
+        for (StructuredStatementTransformer walk : walks) {
+            root.transform(walk, new StructuredScope());
+        }
+    }
+
+    private static class FusedTransformer implements StructuredStatementTransformer {
+        private final List<LocalStructuredStatementTransformer> transformers = ListFactory.newList();
+
+        @Override
+        public StructuredStatement transform(StructuredStatement in, StructuredScope scope) {
+            in.transformStructuredChildren(this, scope);
+            for (LocalStructuredStatementTransformer transformer : transformers) {
+                StructuredStatement res = transformer.transformLocal(in, scope);
+                if (res != in && res != null) {
+                    // As the container would have done, had this been a walk of its own.
+                    res.setContainer(in.getContainer());
+                }
+                in = res;
+                if (in == null) break;
+            }
+            return in;
+        }
+    }
+}
@@ -22,10 +22,10 @@ import org.benf.cfr.reader.util.DecompilerComments;
 import org.benf.cfr.reader.util.collections.Functional;
 import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.functors.Predicate;
+import org.benf.cfr.reader.util.collections.IntSortedMap;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.SortedMap;
 
 import static org.benf.cfr.reader.entities.attributes.TypeAnnotationEntryValue.*;
 
@@ -34,10 +34,10 @@ public class TypeAnnotationTransformer implements StructuredStatementTransformer
     private List<AnnotationTableTypeEntry> variableAnnotations;
     private List<AnnotationTableTypeEntry> catchAnnotations;
 
-    private final SortedMap<Integer, Integer> instrsByOffset;
+    private final IntSortedMap instrsByOffset;
     private final DecompilerComments comments;
 
-    public TypeAnnotationTransformer(AttributeTypeAnnotations vis, AttributeTypeAnnotations invis, SortedMap<Integer, Integer> instrsByOffset, DecompilerComments comments) {
+    public TypeAnnotationTransformer(AttributeTypeAnnotations vis, AttributeTypeAnnotations invis, IntSortedMap instrsByOffset, DecompilerComments comments) {
         this.instrsByOffset = instrsByOffset;
         this.comments = comments;
         this.variableAnnotations = ListFactory.combinedOptimistic(
@@ -126,8 +126,8 @@ public class TypeAnnotationTransformer implements StructuredStatementTransformer
                 if (offset < 0 || slot < 0) continue;
 
                 // We allow instruction BEFORE offset.
-                SortedMap<Integer, Integer> heapMap = instrsByOffset.headMap(offset);
-                int offsetTolerance = heapMap.isEmpty() ? 1 : offset - heapMap.lastKey();
+                int before = instrsByOffset.lowerKey(offset, Integer.MIN_VALUE);
+                int offsetTolerance = before == Integer.MIN_VALUE ? 1 : offset - before;
 
                 List<AnnotationTableTypeEntry> entries = getLocalVariableAnnotations(offset, slot, offsetTolerance);
                 if (entries == null || entries.isEmpty()) continue;
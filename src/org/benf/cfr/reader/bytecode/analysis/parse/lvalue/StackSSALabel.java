@@ -11,6 +11,7 @@ import org.benf.cfr.reader.bytecode.analysis.parse.utils.*;
 import org.benf.cfr.reader.bytecode.analysis.stack.StackEntry;
 import org.benf.cfr.reader.bytecode.analysis.types.discovery.InferredJavaType;
 import org.benf.cfr.reader.entities.exceptions.ExceptionCheck;
+import org.benf.cfr.reader.state.AnalysisCounters;
 import org.benf.cfr.reader.util.output.Dumper;
 
 public class StackSSALabel extends AbstractLValue {
@@ -59,7 +60,7 @@ public class StackSSALabel extends AbstractLValue {
 
     @Override
     public Dumper dump(Dumper d, boolean defines) {
-        return d.identifier("v" + id + typeToString(), this, defines);
+        return d.identifier("v" + AnalysisCounters.displayId(id) + typeToString(), this, defines);
     }
 
     @Override
@@ -118,7 +119,8 @@ public class StackSSALabel extends AbstractLValue {
 
     @Override
     public int hashCode() {
-        return (int) id;
+        // Only the part which doesn't depend on scheduling - labels are hashed, and iterated in hash order.
+        return (int) AnalysisCounters.displayId(id);
     }
 
     @Override
@@ -3,6 +3,7 @@ package org.benf.cfr.reader.bytecode.analysis.stack;
 import org.benf.cfr.reader.bytecode.analysis.parse.lvalue.StackSSALabel;
 import org.benf.cfr.reader.bytecode.analysis.types.StackType;
 import org.benf.cfr.reader.bytecode.analysis.types.discovery.InferredJavaType;
+import org.benf.cfr.reader.state.AnalysisCounters;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.DecompilerComment;
 import org.benf.cfr.reader.util.DecompilerCommentSource;
@@ -14,8 +15,6 @@ import java.util.Set;
 
 public class StackEntry {
 
-    private static long sid = 0;
-
     private final long id0;
     private final Set<Long> ids = SetFactory.newSet();
     private int artificalSourceCount = 0;
@@ -25,7 +24,7 @@ public class StackEntry {
     private final InferredJavaType inferredJavaType = new InferredJavaType();
 
     StackEntry(StackType stackType) {
-        id0 = sid++;
+        id0 = AnalysisCounters.nextId();
         ids.add(id0);
         this.lValue = new StackSSALabel(id0, this);
         this.stackType = stackType;
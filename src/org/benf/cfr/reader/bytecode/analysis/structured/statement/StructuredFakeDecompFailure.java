@@ -4,10 +4,17 @@ import org.benf.cfr.reader.util.output.Dumper;
 
 public class StructuredFakeDecompFailure extends StructuredComment {
     private Exception e;
+    // We stopped on purpose (eg a configured limit) - not a bug, so no stack trace.
+    private final boolean deliberate;
 
     public StructuredFakeDecompFailure(Exception e) {
+        this(e, false);
+    }
+
+    public StructuredFakeDecompFailure(Exception e, boolean deliberate) {
         super("");
         this.e = e;
+        this.deliberate = deliberate;
     }
 
     @Override
@@ -16,10 +23,14 @@ public class StructuredFakeDecompFailure extends StructuredComment {
         dumper.indent(1);
         dumper.newln();
         dumper.beginBlockComment(false);
-        dumper.print("This method has failed to decompile.  When submitting a bug report, please provide this stack trace, and (if you hold appropriate legal rights) the relevant class file.").newln();
-        dumper.print(e.toString()).newln();
-        for (StackTraceElement ste : e.getStackTrace()) {
-            dumper.print(ste.toString()).newln();
+        if (deliberate) {
+            dumper.print(e.getMessage()).newln();
+        } else {
+            dumper.print("This method has failed to decompile.  When submitting a bug report, please provide this stack trace, and (if you hold appropriate legal rights) the relevant class file.").newln();
+            dumper.print(e.toString()).newln();
+            for (StackTraceElement ste : e.getStackTrace()) {
+                dumper.print(ste.toString()).newln();
+            }
         }
         dumper.endBlockComment();
         dumper.keyword("throw new ").print("IllegalStateException").separator("(").literal("\"Decompilation failed\"", "\"Decompilation failed\"").separator(")").endCodeln();
@@ -1,6 +1,5 @@
 package org.benf.cfr.reader.bytecode.analysis.types;
 
-import org.benf.cfr.reader.entities.ClassFile;
 import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
 
@@ -17,14 +16,16 @@ public class BindingSuperContainer {
 
     static BindingSuperContainer POISON = new BindingSuperContainer(null, null, null);
 
+    // The type, rather than its class file - this is cached on the (long lived) type, and mustn't keep
+    // a class file alive once it's been evicted.
     @SuppressWarnings({"FieldCanBeLocal", "unused"})
-    private final ClassFile thisClass;
+    private final JavaTypeInstance thisType;
     private final Map<JavaRefTypeInstance, JavaGenericRefTypeInstance> boundSuperClasses;
     private final Map<JavaRefTypeInstance, Route> boundSuperRoute;
 
-    public BindingSuperContainer(ClassFile thisClass, Map<JavaRefTypeInstance, JavaGenericRefTypeInstance> boundSuperClasses,
+    public BindingSuperContainer(JavaTypeInstance thisType, Map<JavaRefTypeInstance, JavaGenericRefTypeInstance> boundSuperClasses,
                                  Map<JavaRefTypeInstance, Route> boundSuperRoute) {
-        this.thisClass = thisClass;
+        this.thisType = thisType;
         this.boundSuperClasses = boundSuperClasses;
         this.boundSuperRoute = boundSuperRoute;
     }
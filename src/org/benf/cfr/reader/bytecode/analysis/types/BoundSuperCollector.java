@@ -19,7 +19,7 @@ public class BoundSuperCollector {
     }
 
     public BindingSuperContainer getBoundSupers() {
-        return new BindingSuperContainer(classFile, boundSupers, boundSuperRoute);
+        return new BindingSuperContainer(classFile.getClassType(), boundSupers, boundSuperRoute);
     }
 
     public void collect(JavaGenericRefTypeInstance boundBase, BindingSuperContainer.Route route) {
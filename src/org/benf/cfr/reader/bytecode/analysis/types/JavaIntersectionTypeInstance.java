@@ -1,6 +1,7 @@
 package org.benf.cfr.reader.bytecode.analysis.types;
 
 import org.benf.cfr.reader.bytecode.analysis.types.annotated.JavaAnnotatedTypeInstance;
+import org.benf.cfr.reader.state.AnalysisCounters;
 import org.benf.cfr.reader.state.ObfuscationTypeMap;
 import org.benf.cfr.reader.state.TypeUsageCollector;
 import org.benf.cfr.reader.state.TypeUsageInformation;
@@ -14,12 +15,11 @@ import java.util.List;
 
 public class JavaIntersectionTypeInstance implements JavaTypeInstance {
     private final List<JavaTypeInstance> parts;
-    private final int id;
-    private static int sid;
+    private final long id;
 
     public JavaIntersectionTypeInstance(List<JavaTypeInstance> parts) {
         this.parts = parts;
-        id = sid++;
+        id = AnalysisCounters.nextId();
     }
 
     JavaIntersectionTypeInstance withPart(JavaTypeInstance part) {
@@ -75,7 +75,7 @@ public class JavaIntersectionTypeInstance implements JavaTypeInstance {
 
     @Override
     public String getRawName() {
-        return "<intersection#"  +id + ">";
+        return "<intersection#" + AnalysisCounters.displayId(id) + ">";
     }
 
     @Override
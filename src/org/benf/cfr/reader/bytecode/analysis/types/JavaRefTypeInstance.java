@@ -29,7 +29,7 @@ public class JavaRefTypeInstance implements JavaTypeInstance {
     private InnerClassInfo innerClassInfo; // info about this class AS AN INNER CLASS.
     //    private final Options options;
     private final DCCommonState dcCommonState; // Shouldn't need this here...
-    private BindingSuperContainer cachedBindingSupers = BindingSuperContainer.POISON;
+    private volatile BindingSuperContainer cachedBindingSupers = BindingSuperContainer.POISON;
 
     private JavaRefTypeInstance(final String className, DCCommonState dcCommonState) {
         this.innerClassInfo = InnerClassInfo.NOT;
@@ -331,6 +331,14 @@ public class JavaRefTypeInstance implements JavaTypeInstance {
         return className;
     }
 
+    /*
+     * The name this was asked for by, before any renaming to avoid a collision.
+     */
+    public String getOriginalRawName() {
+        String res = dcCommonState == null ? null : dcCommonState.getOriginalTypeName(className);
+        return res == null ? className : res;
+    }
+
     public String getRawShortName() {
         return shortName;
     }
@@ -369,16 +377,29 @@ public class JavaRefTypeInstance implements JavaTypeInstance {
         cachedBindingSupers = bindingSuperContainer;
     }
 
+    /*
+     * Our class file has been evicted (see option 'membudget') - if asked again, work these out from
+     * whatever replaces it.
+     */
+    public void forgetBindingSupers() {
+        // Type constants have theirs fixed at construction, and nothing to work them out from again.
+        if (dcCommonState == null) return;
+        cachedBindingSupers = BindingSuperContainer.POISON;
+    }
+
     @Override
     public BindingSuperContainer getBindingSupers() {
-        if (cachedBindingSupers != BindingSuperContainer.POISON) return cachedBindingSupers;
+        // Read once - this may be forgotten (on eviction) by another thread.
+        BindingSuperContainer res = cachedBindingSupers;
+        if (res != BindingSuperContainer.POISON) return res;
         try {
             ClassFile classFile = getClassFile();
-            cachedBindingSupers = classFile == null ? null : classFile.getBindingSupers();
+            res = classFile == null ? null : classFile.getBindingSupers();
         } catch (CannotLoadClassException e) {
-            cachedBindingSupers = null;
+            res = null;
         }
-        return cachedBindingSupers;
+        cachedBindingSupers = res;
+        return res;
     }
 
     @Override
@@ -4,6 +4,7 @@ import org.benf.cfr.reader.bytecode.analysis.parse.expression.ArithOp;
 import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
 import org.benf.cfr.reader.bytecode.analysis.types.*;
 import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.state.AnalysisCounters;
 import org.benf.cfr.reader.util.*;
 import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
@@ -59,8 +60,6 @@ public class InferredJavaType {
     }
 
 
-    private static int global_id = 0;
-
     private enum ClashState {
         None,
         Clash,
@@ -74,11 +73,11 @@ public class InferredJavaType {
 
         Source getSource();
 
-        int getLocalId();
+        long getLocalId();
 
-        int getFinalId();
+        long getFinalId();
 
-        boolean usesFinalId(int id);
+        boolean usesFinalId(long id);
 
         ClashState getClashState();
 
@@ -112,12 +111,12 @@ public class InferredJavaType {
         private boolean resolved = false;
 
         private List<IJTInternal> clashes;
-        private final int id;
+        private final long id;
 
         private JavaTypeInstance type = null;
 
         private IJTInternal_Clash(Collection<IJTInternal> clashes) {
-            this.id = global_id++;
+            this.id = AnalysisCounters.nextId();
             this.clashes = ListFactory.newList(SetFactory.newOrderedSet(clashes));
         }
 
@@ -342,12 +341,12 @@ public class InferredJavaType {
         }
 
         @Override
-        public int getFinalId() {
+        public long getFinalId() {
             return id;
         }
 
         @Override
-        public boolean usesFinalId(int id) {
+        public boolean usesFinalId(long id) {
             if (this.id == id) return true;
             if (resolved) return clashes.get(0).usesFinalId(id);
             for (IJTInternal internal : clashes) {
@@ -357,7 +356,7 @@ public class InferredJavaType {
         }
 
         @Override
-        public int getLocalId() {
+        public long getLocalId() {
             return id;
         }
 
@@ -406,11 +405,11 @@ public class InferredJavaType {
 
         public String toString() {
             if (resolved) {
-                return "#" + id + " " + type.toString();
+                return "#" + AnalysisCounters.displayId(id) + " " + type.toString();
             } else {
                 StringBuilder sb = new StringBuilder();
                 for (IJTInternal clash : clashes) {
-                    sb.append(id).append(" -> ").append(clash.toString()).append(", ");
+                    sb.append(AnalysisCounters.displayId(id)).append(" -> ").append(clash.toString()).append(", ");
                 }
                 return sb.toString();
             }
@@ -451,7 +450,7 @@ public class InferredJavaType {
         private int taggedBytecodeLocation = -1;
 
         private final Source source;
-        private final int id;
+        private final long id;
         // When delegating
         private IJTInternal delegate;
 
@@ -460,7 +459,7 @@ public class InferredJavaType {
         private IJTInternal_Impl(JavaTypeInstance type, Source source, boolean locked) {
             this.type = type;
             this.source = source;
-            this.id = global_id++;
+            this.id = AnalysisCounters.nextId();
             this.locked = locked;
         }
 
@@ -515,7 +514,7 @@ public class InferredJavaType {
             }
         }
 
-        public int getFinalId() {
+        public long getFinalId() {
             if (isDelegate) {
                 return delegate.getFinalId();
             } else {
@@ -524,7 +523,7 @@ public class InferredJavaType {
         }
 
         @Override
-        public boolean usesFinalId(int id) {
+        public boolean usesFinalId(long id) {
             if (isDelegate) {
                 return delegate.usesFinalId(id);
             } else {
@@ -532,7 +531,7 @@ public class InferredJavaType {
             }
         }
 
-        public int getLocalId() {
+        public long getLocalId() {
             return id;
         }
 
@@ -606,9 +605,9 @@ public class InferredJavaType {
 
         public String toString() {
             if (isDelegate) {
-                return "#" + id + " -> " + delegate.toString();
+                return "#" + AnalysisCounters.displayId(id) + " -> " + delegate.toString();
             } else {
-                return "#" + id + " " + type.toString();
+                return "#" + AnalysisCounters.displayId(id) + " " + type.toString();
             }
         }
 
@@ -718,7 +717,7 @@ public class InferredJavaType {
         return this;
     }
 
-    public int getLocalId() {
+    public long getLocalId() {
         return value.getLocalId();
     }
 
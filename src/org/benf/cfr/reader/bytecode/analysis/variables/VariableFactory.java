@@ -9,15 +9,16 @@ import org.benf.cfr.reader.bytecode.analysis.types.RawJavaType;
 import org.benf.cfr.reader.bytecode.analysis.types.discovery.InferredJavaType;
 import org.benf.cfr.reader.entities.Method;
 import org.benf.cfr.reader.util.collections.MapFactory;
+import org.benf.cfr.reader.util.collections.IntSet;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 public class VariableFactory {
     private final VariableNamer variableNamer;
-    private final Map<Integer, InferredJavaType> typedArgs;
-    private final Set<Integer> clashes;
+    // By slot.
+    private final InferredJavaType[] typedArgs;
+    private final IntSet clashes;
     private final Method method;
     private int ignored;
 
@@ -28,14 +29,18 @@ public class VariableFactory {
         this.clashes = bytecodeMeta.getLivenessClashes();
         MethodPrototype methodPrototype = method.getMethodPrototype();
         List<JavaTypeInstance> args = methodPrototype.getArgs();
-        this.typedArgs = MapFactory.newMap();
+        int slots = methodPrototype.isInstanceMethod() ? 1 : 0;
+        for (JavaTypeInstance arg : args) {
+            slots += arg.getStackType().getComputationCategory();
+        }
+        this.typedArgs = new InferredJavaType[slots];
         int offset = 0;
         if (methodPrototype.isInstanceMethod()) {
             JavaTypeInstance thisType = method.getClassFile().getClassType();
-            typedArgs.put(offset++, new InferredJavaType(thisType, InferredJavaType.Source.UNKNOWN, true));
+            typedArgs[offset++] = new InferredJavaType(thisType, InferredJavaType.Source.UNKNOWN, true);
         }
         for (JavaTypeInstance arg : args) {
-            typedArgs.put(offset, new InferredJavaType(arg, InferredJavaType.Source.UNKNOWN, true));
+            typedArgs[offset] = new InferredJavaType(arg, InferredJavaType.Source.UNKNOWN, true);
             offset += arg.getStackType().getComputationCategory();
         }
         if (methodPrototype.parametersComputed()) {
@@ -67,7 +72,7 @@ public class VariableFactory {
             // however, we can recover from here.
             ident = new Ident(stackPosition, -1);
         }
-        InferredJavaType varType = ident.getIdx() == 0 ? typedArgs.get(stackPosition) : null;
+        InferredJavaType varType = ident.getIdx() == 0 ? getTypedArg(stackPosition) : null;
         if (varType == null) {
             varType = new InferredJavaType(RawJavaType.VOID, InferredJavaType.Source.UNKNOWN);
         }
@@ -76,7 +81,7 @@ public class VariableFactory {
                 clashes.contains(stackPosition)
                 // TODO : This is a hack disabling explicit clashes, to avoid breaking Tower. (see tests)
                 // However, it will need to be fixed to deal with bug #87
-                && typedArgs.get(stackPosition) == null,
+                && getTypedArg(stackPosition) == null,
                 varType);
         LValue val = cache.get(tmp);
         if (val == null) {
@@ -86,6 +91,10 @@ public class VariableFactory {
         return val;
     }
 
+    private InferredJavaType getTypedArg(int slot) {
+        return slot >= 0 && slot < typedArgs.length ? typedArgs[slot] : null;
+    }
+
     public void mutatingRenameUnClash(LocalVariable toRename) {
         variableNamer.mutatingRenameUnClash(toRename.getName());
     }
@@ -0,0 +1,51 @@
+package org.benf.cfr.reader.bytecode.analysis.variables;
+
+import org.benf.cfr.reader.entities.attributes.AttributeCode;
+import org.benf.cfr.reader.entities.constantpool.ConstantPool;
+
+import java.util.List;
+
+/*
+ * Don't build the real namer (or decode the local variable table it needs) until someone asks
+ * for a name - which, for methods of classes we only load for their signatures, never happens.
+ */
+class VariableNamerDeferred implements VariableNamer {
+    private final AttributeCode codeAttribute;
+    private final ConstantPool cp;
+    private VariableNamer delegate;
+
+    VariableNamerDeferred(AttributeCode codeAttribute, ConstantPool cp) {
+        this.codeAttribute = codeAttribute;
+        this.cp = cp;
+    }
+
+    /*
+     * Namers are stateful, so we must only ever build one.
+     */
+    private synchronized VariableNamer getDelegate() {
+        if (delegate == null) {
+            delegate = VariableNamerFactory.getNamer(codeAttribute == null ? null : codeAttribute.getLocalVariableTable(), cp);
+        }
+        return delegate;
+    }
+
+    @Override
+    public NamedVariable getName(int originalRawOffset, Ident ident, long stackPosition, boolean clashed) {
+        return getDelegate().getName(originalRawOffset, ident, stackPosition, clashed);
+    }
+
+    @Override
+    public List<NamedVariable> getNamedVariables() {
+        return getDelegate().getNamedVariables();
+    }
+
+    @Override
+    public void mutatingRenameUnClash(NamedVariable toRename) {
+        getDelegate().mutatingRenameUnClash(toRename);
+    }
+
+    @Override
+    public void forceName(Ident ident, long stackPosition, String name) {
+        getDelegate().forceName(ident, stackPosition, name);
+    }
+}
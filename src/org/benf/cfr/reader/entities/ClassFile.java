@@ -1,5 +1,6 @@
 package org.benf.cfr.reader.entities;
 
+import org.benf.cfr.reader.bytecode.AnalysisBudget;
 import org.benf.cfr.reader.bytecode.CodeAnalyserWholeClass;
 import org.benf.cfr.reader.bytecode.analysis.opgraph.Op04StructuredStatement;
 import org.benf.cfr.reader.bytecode.analysis.parse.expression.ConstructorInvokationAnonymousInner;
@@ -50,6 +51,7 @@ import org.benf.cfr.reader.entities.innerclass.InnerClassAttributeInfo;
 import org.benf.cfr.reader.entityfactories.AttributeFactory;
 import org.benf.cfr.reader.entityfactories.ContiguousEntityFactory;
 import org.benf.cfr.reader.relationship.MemberNameResolver;
+import org.benf.cfr.reader.state.AnalysisCounters;
 import org.benf.cfr.reader.state.DCCommonState;
 import org.benf.cfr.reader.state.InnerClassTypeUsageInformation;
 import org.benf.cfr.reader.state.OverloadMethodSetCache;
@@ -98,11 +100,15 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     private final ConstantPool constantPool;
     private final Set<AccessFlag> accessFlags;
     private final List<ClassFileField> fields;
-    private Map<String, Map<JavaTypeInstance, ClassFileField>> fieldsByName; // Lazily populated if interrogated.
+    /*
+     * Lazily populated caches below are only ever published once complete, as library class files are
+     * shared between analysis threads (see option 'threads').
+     */
+    private volatile Map<String, Map<JavaTypeInstance, ClassFileField>> fieldsByName; // Lazily populated if interrogated.
 
     private final List<Method> methods;
     private FakeMethods fakeMethods;
-    private Map<String, List<Method>> methodsByName; // Lazily populated if interrogated.
+    private volatile Map<String, List<Method>> methodsByName; // Lazily populated if interrogated.
     private final boolean isInnerClass;
     private final Map<JavaTypeInstance, Pair<InnerClassAttributeInfo, ClassFile>> innerClassesByTypeInfo; // populated if analysed.
 
@@ -126,10 +132,12 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
      */
     private boolean hiddenInnerClass;
 
-    private BindingSuperContainer boundSuperClasses;
+    private volatile BindingSuperContainer boundSuperClasses;
 
     private ClassFileDumper dumpHelper;
 
+    private AnalysisBudget.ClassBudget analysisBudget; // Created when the first method is analysed.
+
     private final String usePath;
 
     /*
@@ -427,6 +435,11 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         return decompilerComments;
     }
 
+    public synchronized AnalysisBudget.ClassBudget getAnalysisBudget(Options options) {
+        if (analysisBudget == null) analysisBudget = AnalysisBudget.ClassBudget.create(options);
+        return analysisBudget;
+    }
+
     public DecompilerComments ensureDecompilerComments() {
         if (decompilerComments == null) decompilerComments = new DecompilerComments();
         return decompilerComments;
@@ -506,20 +519,20 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         return formalTypeParameters != null && !formalTypeParameters.isEmpty();
     }
 
-    private void ensureFieldsByName() {
-        if (fieldsByName == null) {
-            calculateFieldsByName();
+    private Map<String, Map<JavaTypeInstance, ClassFileField>> ensureFieldsByName() {
+        Map<String, Map<JavaTypeInstance, ClassFileField>> res = fieldsByName;
+        if (res == null) {
+            res = calculateFieldsByName();
         }
+        return res;
     }
 
     public boolean hasLocalField(String name) {
-        ensureFieldsByName();
-        return fieldsByName.containsKey(name);
+        return ensureFieldsByName().containsKey(name);
     }
 
     public boolean hasAccessibleField(String name, JavaRefTypeInstance maybeCaller) {
-        ensureFieldsByName();
-        Map<JavaTypeInstance, ClassFileField> fields = fieldsByName.get(name);
+        Map<JavaTypeInstance, ClassFileField> fields = ensureFieldsByName().get(name);
         if (fields == null)
         {
             JavaTypeInstance baseClassType = getBaseClassType();
@@ -541,10 +554,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     }
 
     public ClassFileField getFieldByName(String name, JavaTypeInstance type) throws NoSuchFieldException {
-        if (fieldsByName == null) {
-            calculateFieldsByName();
-        }
-        Map<JavaTypeInstance, ClassFileField> fieldsByType = fieldsByName.get(name);
+        Map<JavaTypeInstance, ClassFileField> fieldsByType = ensureFieldsByName().get(name);
         if (fieldsByType == null || fieldsByType.isEmpty()) { // can't be empty, but....
             throw new NoSuchFieldException(name);
         }
@@ -556,11 +566,16 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         return field;
     }
 
-    private void calculateFieldsByName() {
+    /*
+     * Locked, as well as published when complete, as this marks fields and adds comments - that should only
+     * happen once.
+     */
+    private synchronized Map<String, Map<JavaTypeInstance, ClassFileField>> calculateFieldsByName() {
+        if (fieldsByName != null) return fieldsByName;
         Options options = constantPool.getDCCommonState().getOptions();
         boolean testIllegal = !options.getOption(OptionsImpl.RENAME_ILLEGAL_IDENTS);
         boolean illegal = false;
-        fieldsByName = MapFactory.newMap();
+        Map<String, Map<JavaTypeInstance, ClassFileField>> res = MapFactory.newMap();
         if (testIllegal) {
             for (ClassFileField field : fields) {
                 String rawFieldName = field.getRawFieldName();
@@ -576,10 +591,10 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         for (ClassFileField field : fields) {
             String fieldName = field.getFieldName();
             JavaTypeInstance fieldType = field.getField().getJavaTypeInstance();
-            Map<JavaTypeInstance, ClassFileField> perNameMap = fieldsByName.get(fieldName);
+            Map<JavaTypeInstance, ClassFileField> perNameMap = res.get(fieldName);
             if (perNameMap == null) {
                 perNameMap = MapFactory.newOrderedMap();
-                fieldsByName.put(fieldName, perNameMap);
+                res.put(fieldName, perNameMap);
             }
             perNameMap.put(fieldType, field);
             if (renameSmallMembers && fieldName.length() <= smallMemberThreshold) {
@@ -587,7 +602,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
             }
         }
         boolean warnAmbig = false;
-        for (Map<JavaTypeInstance, ClassFileField> typeMap : fieldsByName.values()) {
+        for (Map<JavaTypeInstance, ClassFileField> typeMap : res.values()) {
             if (typeMap.size() > 1) {
                 if (constantPool.getDCCommonState().getOptions().getOption(OptionsImpl.RENAME_DUP_MEMBERS)) {
                     for (ClassFileField field : typeMap.values()) {
@@ -604,6 +619,8 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         if (illegal) {
             addComment(DecompilerComment.ILLEGAL_IDENTIFIERS);
         }
+        fieldsByName = res;
+        return res;
     }
 
     public List<ClassFileField> getFields() {
@@ -753,18 +770,21 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     }
 
     public List<Method> getMethodsByNameOrNull(String name) {
-        if (methodsByName == null) {
-            methodsByName = MapFactory.newMap();
+        Map<String, List<Method>> byName = methodsByName;
+        if (byName == null) {
+            // No side effects, so if two threads race here, it doesn't matter which wins.
+            byName = MapFactory.newMap();
             for (Method method : methods) {
-                List<Method> list = methodsByName.get(method.getName());
+                List<Method> list = byName.get(method.getName());
                 if (list == null) {
                     list = ListFactory.newList();
-                    methodsByName.put(method.getName(), list);
+                    byName.put(method.getName(), list);
                 }
                 list.add(method);
             }
+            methodsByName = byName;
         }
-        return methodsByName.get(name);
+        return byName.get(name);
     }
 
     public List<Method> getMethodByName(String name) throws NoSuchMethodException {
@@ -926,6 +946,16 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     }
 
     public void analyseTop(final DCCommonState dcCommonState, final TypeUsageCollectingDumper typeUsageCollectingDumper) {
+        // What's made outside a method's recovery passes gets an id scope for the class - see AnalysisCounters.
+        AnalysisCounters.IdScope previous = dcCommonState.getAnalysisCounters().newIdScope().bind();
+        try {
+            analyseTopInScope(dcCommonState, typeUsageCollectingDumper);
+        } finally {
+            AnalysisCounters.IdScope.restore(previous);
+        }
+    }
+
+    private void analyseTopInScope(final DCCommonState dcCommonState, final TypeUsageCollectingDumper typeUsageCollectingDumper) {
         analyseMid(dcCommonState);
         analysePassOuterFirst(new UnaryProcedure<ClassFile>() {
             @Override
@@ -935,6 +965,11 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         });
         /*
          * Perform a pass to determine what imports / classes etc we used / failed.
+         *
+         * This has to be a dump, rather than a collectTypeUsages pass - the latter sees types which
+         * are never emitted (and misses some which are), and we want exactly the types that will be
+         * printed.  Nor can we keep the output of this pass - pass 3 below may rewrite code, and the
+         * real dump makes decisions based on the type usage information we're about to build.
          */
         this.dump(typeUsageCollectingDumper);
         analysePassOuterFirst(new UnaryProcedure<ClassFile>() {
@@ -1253,10 +1288,12 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     public BindingSuperContainer getBindingSupers() {
         // Start with the generic version of this type, i.e. if this is Fred<X>
 
-        if (boundSuperClasses == null) {
-            boundSuperClasses = generateBoundSuperClasses();
+        BindingSuperContainer res = boundSuperClasses;
+        if (res == null) {
+            res = generateBoundSuperClasses();
+            boundSuperClasses = res;
         }
-        return boundSuperClasses;
+        return res;
     }
 
     private BindingSuperContainer generateBoundSuperClasses() {
@@ -1275,7 +1312,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         }
 
         JavaTypeInstance base = classSignature.getSuperClass();
-        if (base == null) return new BindingSuperContainer(this, new HashMap<JavaRefTypeInstance, JavaGenericRefTypeInstance>(), new HashMap<JavaRefTypeInstance, BindingSuperContainer.Route>());
+        if (base == null) return new BindingSuperContainer(getClassType(), new HashMap<JavaRefTypeInstance, JavaGenericRefTypeInstance>(), new HashMap<JavaRefTypeInstance, BindingSuperContainer.Route>());
         getBoundSuperClasses2(base, genericTypeBinder, boundSuperCollector, BindingSuperContainer.Route.EXTENSION, SetFactory.<JavaTypeInstance>newSet());
         for (JavaTypeInstance interfaceBase : classSignature.getInterfaces()) {
             getBoundSuperClasses2(interfaceBase, genericTypeBinder, boundSuperCollector, BindingSuperContainer.Route.INTERFACE, SetFactory.<JavaTypeInstance>newSet());
@@ -1378,20 +1415,24 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
 
     private List<ConstructorInvokationSimple> methodUsages = ListFactory.newList();
 
-    public void noteAnonymousUse(ConstructorInvokationAnonymousInner anoynmousInner) {
+    /*
+     * Usages may be noted from other classes' analyses, on other threads - so these are locked, and
+     * readers get a copy.
+     */
+    public synchronized void noteAnonymousUse(ConstructorInvokationAnonymousInner anoynmousInner) {
         anonymousUsages.add(anoynmousInner);
     }
 
-    public void noteMethodUse(ConstructorInvokationSimple constructorCall) {
+    public synchronized void noteMethodUse(ConstructorInvokationSimple constructorCall) {
         methodUsages.add(constructorCall);
     }
 
-    public List<ConstructorInvokationAnonymousInner> getAnonymousUsages() {
-        return anonymousUsages;
+    public synchronized List<ConstructorInvokationAnonymousInner> getAnonymousUsages() {
+        return ListFactory.newList(anonymousUsages);
     }
 
-    public List<ConstructorInvokationSimple> getMethodUsages() {
-        return methodUsages;
+    public synchronized List<ConstructorInvokationSimple> getMethodUsages() {
+        return ListFactory.newList(methodUsages);
     }
 
     // More of an extension method really :)
@@ -142,14 +142,13 @@ public class Method implements KnowsRawSize, TypeUsageCollectable {
         }
 
         AttributeCode codeAttribute = attributes.getByName(AttributeCode.ATTRIBUTE_NAME);
+        // Because we don't have a code attribute, we don't have a local variable table.
+        // Otherwise, don't decode the table until we need a name - most methods we load are never analysed.
+        this.variableNamer = VariableNamerFactory.getDeferredNamer(options.getOption(OptionsImpl.USE_NAME_TABLE) ? codeAttribute : null, cp);
         if (codeAttribute == null) {
-            // Because we don't have a code attribute, we don't have a local variable table.
-            this.variableNamer = VariableNamerFactory.getNamer(null, cp);
             this.codeAttribute = null;
         } else {
             this.codeAttribute = codeAttribute;
-            AttributeLocalVariableTable variableTable = options.getOption(OptionsImpl.USE_NAME_TABLE) ? this.codeAttribute.getLocalVariableTable() : null;
-            this.variableNamer = VariableNamerFactory.getNamer(variableTable, cp);
             // This rigamarole is neccessary because we don't provide the factory for the code attribute enough information
             // to get the Method (this).
             this.codeAttribute.setMethod(this);
@@ -259,6 +258,10 @@ public class Method implements KnowsRawSize, TypeUsageCollectable {
         return methodPrototype.getName();
     }
 
+    public String getDescriptor() {
+        return cp.getUTF8Entry(descriptorIndex).getValue();
+    }
+
     /* This is a bit ugly - otherwise though we need to tie a variable namer to this earlier.
      * We can't always use the signature... in an enum, for example, it lies!
      *
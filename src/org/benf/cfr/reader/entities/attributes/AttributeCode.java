@@ -26,10 +26,16 @@ public class AttributeCode extends Attribute {
     private final int maxStack;
     private final int maxLocals;
     private final int codeLength;
-    private final List<ExceptionTableEntry> exceptionTableEntries;
-    private final AttributeMap attributes;
     private final ConstantPool cp;
+    private final ClassFileVersion classFileVersion;
     private final ByteData rawData;
+    private final ByteData rawTail;
+    /*
+     * The exception table and nested attributes (line numbers, local variables, stack maps...) are only
+     * decoded when first asked for - most code we load belongs to library classes, which we only look
+     * at for their signatures, and never need the bodies of.
+     */
+    private volatile Body body;
 
     private final CodeAnalyser codeAnalyser;
 
@@ -62,28 +68,53 @@ public class AttributeCode extends Attribute {
         this.maxLocals = maxLocals;
         this.codeLength = codeLength;
 
-        final long OFFSET_OF_EXCEPTION_TABLE_LENGTH = OFFSET_OF_CODE + codeLength;
+        this.classFileVersion = classFileVersion;
+        this.rawTail = raw.getOffsetData(OFFSET_OF_CODE + codeLength);
+        this.rawData = raw.getOffsetData(OFFSET_OF_CODE);
+        this.codeAnalyser = new CodeAnalyser(this);
+    }
+
+    private static class Body {
+        private final List<ExceptionTableEntry> exceptionTableEntries;
+        private final AttributeMap attributes;
+
+        private Body(List<ExceptionTableEntry> exceptionTableEntries, AttributeMap attributes) {
+            this.exceptionTableEntries = exceptionTableEntries;
+            this.attributes = attributes;
+        }
+    }
+
+    /*
+     * Decoding is idempotent, so if two threads race here, it doesn't matter which one wins.
+     */
+    private Body getBody() {
+        Body res = body;
+        if (res == null) {
+            res = decodeBody();
+            body = res;
+        }
+        return res;
+    }
+
+    private Body decodeBody() {
+        final long OFFSET_OF_EXCEPTION_TABLE_LENGTH = 0;
         final long OFFSET_OF_EXCEPTION_TABLE = OFFSET_OF_EXCEPTION_TABLE_LENGTH + 2;
 
         ArrayList<ExceptionTableEntry> etis = new ArrayList<ExceptionTableEntry>();
-        final int numExceptions = raw.getU2At(OFFSET_OF_EXCEPTION_TABLE_LENGTH);
+        final int numExceptions = rawTail.getU2At(OFFSET_OF_EXCEPTION_TABLE_LENGTH);
         etis.ensureCapacity(numExceptions);
         final long numBytesExceptionInfo =
-                ContiguousEntityFactory.buildSized(raw.getOffsetData(OFFSET_OF_EXCEPTION_TABLE), numExceptions, 8, etis,
+                ContiguousEntityFactory.buildSized(rawTail.getOffsetData(OFFSET_OF_EXCEPTION_TABLE), numExceptions, 8, etis,
                         ExceptionTableEntry.getBuilder());
-        this.exceptionTableEntries = etis;
 
         final long OFFSET_OF_ATTRIBUTES_COUNT = OFFSET_OF_EXCEPTION_TABLE + numBytesExceptionInfo;
         final long OFFSET_OF_ATTRIBUTES = OFFSET_OF_ATTRIBUTES_COUNT + 2;
-        final int numAttributes = raw.getU2At(OFFSET_OF_ATTRIBUTES_COUNT);
+        final int numAttributes = rawTail.getU2At(OFFSET_OF_ATTRIBUTES_COUNT);
         ArrayList<Attribute> tmpAttributes = new ArrayList<Attribute>();
         tmpAttributes.ensureCapacity(numAttributes);
-        ContiguousEntityFactory.build(raw.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, tmpAttributes,
+        ContiguousEntityFactory.build(rawTail.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, tmpAttributes,
                 AttributeFactory.getBuilder(cp, classFileVersion));
-        this.attributes = new AttributeMap(tmpAttributes);
-
-        this.rawData = raw.getOffsetData(OFFSET_OF_CODE);
-        this.codeAnalyser = new CodeAnalyser(this);
+        return new Body(etis, new AttributeMap(tmpAttributes));
     }
 
     public void setMethod(Method method) {
@@ -99,19 +130,19 @@ public class AttributeCode extends Attribute {
     }
 
     public AttributeLocalVariableTable getLocalVariableTable() {
-        return attributes.getByName(AttributeLocalVariableTable.ATTRIBUTE_NAME);
+        return getBody().attributes.getByName(AttributeLocalVariableTable.ATTRIBUTE_NAME);
     }
 
     public AttributeLineNumberTable getLineNumberTable() {
-        return attributes.getByName(AttributeLineNumberTable.ATTRIBUTE_NAME);
+        return getBody().attributes.getByName(AttributeLineNumberTable.ATTRIBUTE_NAME);
     }
 
     public AttributeRuntimeVisibleTypeAnnotations getRuntimeVisibleTypeAnnotations() {
-        return attributes.getByName(AttributeRuntimeVisibleTypeAnnotations.ATTRIBUTE_NAME);
+        return getBody().attributes.getByName(AttributeRuntimeVisibleTypeAnnotations.ATTRIBUTE_NAME);
     }
 
     public AttributeRuntimeInvisibleTypeAnnotations getRuntimeInvisibleTypeAnnotations() {
-        return attributes.getByName(AttributeRuntimeInvisibleTypeAnnotations.ATTRIBUTE_NAME);
+        return getBody().attributes.getByName(AttributeRuntimeInvisibleTypeAnnotations.ATTRIBUTE_NAME);
     }
 
     public ByteData getRawData() {
@@ -119,7 +150,7 @@ public class AttributeCode extends Attribute {
     }
 
     public List<ExceptionTableEntry> getExceptionTableEntries() {
-        return exceptionTableEntries;
+        return getBody().exceptionTableEntries;
     }
 
     public int getMaxLocals() {
@@ -147,7 +178,7 @@ public class AttributeCode extends Attribute {
 
     @Override
     public void collectTypeUsages(TypeUsageCollector collector) {
-        attributes.collectTypeUsages(collector);
+        getBody().attributes.collectTypeUsages(collector);
     }
 
     public void releaseCode() {
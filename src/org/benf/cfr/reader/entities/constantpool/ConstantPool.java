@@ -6,38 +6,54 @@ import org.benf.cfr.reader.state.DCCommonState;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.bytestream.ByteData;
 import org.benf.cfr.reader.util.bytestream.OffsettingByteData;
-import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.output.LazyLogger;
 import org.benf.cfr.reader.util.output.LoggerFactory;
 
-import java.util.List;
-import java.util.logging.Logger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class ConstantPool {
-    private static final Logger logger = LoggerFactory.create(ConstantPool.class);
+    private static final LazyLogger logger = LoggerFactory.createLazy(ConstantPool.class);
 
     private final long length;
-    private final List<ConstantPoolEntry> entries;
+    private final AtomicReferenceArray<ConstantPoolEntry> entries;
+    /*
+     * Only for lazy pools - where each entry starts in raw, so it can be built on first use.
+     * (-1 for the unusable slot following a long / double).
+     */
+    private final int[] offsets;
+    private final ByteData raw;
     private final Options options;
     private final DCCommonState dcCommonState;
     private final ClassCache classCache;
     private final ClassFile classFile;
     private String comparisonKey;
     private boolean isLoaded;
-    private final int idx = sidx++;
-    private static int sidx = 0;
+    private final int idx;
     private final boolean dynamicConstants;
 
     public ConstantPool(ClassFile classFile, DCCommonState dcCommonState, ByteData raw, int count) {
         this.classFile = classFile;
         this.options = dcCommonState.getOptions();
+        this.dcCommonState = dcCommonState;
         count--;
 
-        RawTmp tmp = processRaw(raw, count);
+        /*
+         * Most classes we load are only there so we can look at a signature or two, so by default
+         * we just find where entries are, and build them when they're asked for.
+         *
+         * Long strings are numbered as they're decoded though, so if we're hiding them, decode in
+         * order, to keep names stable.
+         */
+        boolean lazy = options.getOption(OptionsImpl.LAZY_CONSTANT_POOL) && !options.getOption(OptionsImpl.HIDE_LONGSTRINGS);
+        RawTmp tmp = lazy ? indexRaw(raw, count) : processRaw(raw, count);
         this.entries = tmp.entries;
+        this.offsets = tmp.offsets;
+        this.raw = lazy ? raw : null;
         this.length = tmp.rawLength;
         this.dynamicConstants = tmp.dynamicConstants;
-        this.dcCommonState = dcCommonState;
+        this.idx = dcCommonState.getAnalysisCounters().nextConstantPoolIdx();
         this.classCache = dcCommonState.getClassCache();
         this.isLoaded = true;
     }
@@ -55,95 +71,136 @@ public class ConstantPool {
     }
 
     private static class RawTmp {
-        final List<ConstantPoolEntry> entries;
+        final AtomicReferenceArray<ConstantPoolEntry> entries;
+        final int[] offsets;
         final long rawLength;
         final boolean dynamicConstants;
 
-        RawTmp(List<ConstantPoolEntry> entries, long rawLength, boolean dynamicConstants) {
+        RawTmp(AtomicReferenceArray<ConstantPoolEntry> entries, int[] offsets, long rawLength, boolean dynamicConstants) {
             this.entries = entries;
+            this.offsets = offsets;
             this.rawLength = rawLength;
             this.dynamicConstants = dynamicConstants;
         }
     }
 
     private RawTmp processRaw(ByteData raw, int count) {
-        List<ConstantPoolEntry> tgt = ListFactory.newList(count);
+        AtomicReferenceArray<ConstantPoolEntry> tgt = new AtomicReferenceArray<ConstantPoolEntry>(count);
         OffsettingByteData data = raw.getOffsettingOffsetData(0);
         boolean dynamicConstant = false;
-        logger.info("Processing " + count + " constpool entries.");
+        // Checked once, as this is per entry of every class we load.
+        boolean logEntries = logger.isInfo();
+        if (logEntries) logger.info("Processing {} constpool entries.", count);
         for (int x = 0; x < count; ++x) {
             ConstantPoolEntry.Type type = ConstantPoolEntry.Type.get(data.getS1At(0));
-            ConstantPoolEntry cpe;
+            ConstantPoolEntry cpe = createEntry(type, data);
+            if (type == ConstantPoolEntry.Type.CPT_DynamicInfo) dynamicConstant = true;
+            if (logEntries) logger.info("{} : {}", x + 1, cpe);
+            tgt.set(x, cpe);
             switch (type) {
-                case CPT_NameAndType:
-                    cpe = new ConstantPoolEntryNameAndType(this, data);
-                    break;
-                case CPT_String:
-                    cpe = new ConstantPoolEntryString(this, data);
-                    break;
-                case CPT_FieldRef:
-                    cpe = new ConstantPoolEntryFieldRef(this, data);
-                    break;
-                case CPT_MethodRef:
-                    cpe = new ConstantPoolEntryMethodRef(this, data, false);
-                    break;
-                case CPT_InterfaceMethodRef:
-                    cpe = new ConstantPoolEntryMethodRef(this, data, true);
-                    break;
-                case CPT_Class:
-                    cpe = new ConstantPoolEntryClass(this, data);
-                    break;
                 case CPT_Double:
-                    cpe = new ConstantPoolEntryDouble(this, data);
-                    break;
-                case CPT_Float:
-                    cpe = new ConstantPoolEntryFloat(this, data);
-                    break;
                 case CPT_Long:
-                    cpe = new ConstantPoolEntryLong(this, data);
-                    break;
-                case CPT_Integer:
-                    cpe = new ConstantPoolEntryInteger(this, data);
+                    x++;
                     break;
+            }
+
+            long size = cpe.getRawByteLength();
+            data.advance(size);
+        }
+        return new RawTmp(tgt, null, data.getOffset(), dynamicConstant);
+    }
+
+    /*
+     * As processRaw, but only record where each entry is.
+     */
+    private RawTmp indexRaw(ByteData raw, int count) {
+        int[] offsets = new int[count];
+        OffsettingByteData data = raw.getOffsettingOffsetData(0);
+        boolean dynamicConstant = false;
+        if (logger.isInfo()) logger.info("Indexing {} constpool entries.", count);
+        for (int x = 0; x < count; ++x) {
+            ConstantPoolEntry.Type type = ConstantPoolEntry.Type.get(data.getS1At(0));
+            offsets[x] = (int) data.getOffset();
+            long size;
+            switch (type) {
                 case CPT_UTF8:
-                    cpe = new ConstantPoolEntryUTF8(this, data, options);
-                    break;
-                case CPT_MethodHandle:
-                    cpe = new ConstantPoolEntryMethodHandle(this, data);
+                    size = 3 + data.getU2At(1);
                     break;
+                case CPT_Class:
+                case CPT_String:
                 case CPT_MethodType:
-                    cpe = new ConstantPoolEntryMethodType(this, data);
+                case CPT_ModuleInfo:
+                case CPT_PackageInfo:
+                    size = 3;
+                    break;
+                case CPT_MethodHandle:
+                    size = 4;
                     break;
                 case CPT_DynamicInfo:
-                    cpe = new ConstantPoolEntryDynamicInfo(this, data);
                     dynamicConstant = true;
+                    size = 5;
                     break;
+                case CPT_Integer:
+                case CPT_Float:
+                case CPT_FieldRef:
+                case CPT_MethodRef:
+                case CPT_InterfaceMethodRef:
+                case CPT_NameAndType:
                 case CPT_InvokeDynamic:
-                    cpe = new ConstantPoolEntryInvokeDynamic(this, data);
-                    break;
-                case CPT_ModuleInfo:
-                    cpe = new ConstantPoolEntryModuleInfo(this, data);
-                    break;
-                case CPT_PackageInfo:
-                    cpe = new ConstantPoolEntryPackageInfo(this, data);
+                    size = 5;
                     break;
-                default:
-                    throw new ConfusedCFRException("Invalid constant pool entry : " + type);
-            }
-            logger.info("" + (x + 1) + " : " + cpe);
-            tgt.add(cpe);
-            switch (type) {
                 case CPT_Double:
                 case CPT_Long:
-                    tgt.add(null);
-                    x++;
+                    size = 9;
+                    if (x + 1 < count) offsets[++x] = -1;
                     break;
+                default:
+                    throw new ConfusedCFRException("Invalid constant pool entry : " + type);
             }
-
-            long size = cpe.getRawByteLength();
             data.advance(size);
         }
-        return new RawTmp(tgt, data.getOffset(), dynamicConstant);
+        return new RawTmp(new AtomicReferenceArray<ConstantPoolEntry>(count), offsets, data.getOffset(), dynamicConstant);
+    }
+
+    private ConstantPoolEntry createEntry(ConstantPoolEntry.Type type, ByteData data) {
+        switch (type) {
+            case CPT_NameAndType:
+                return new ConstantPoolEntryNameAndType(this, data);
+            case CPT_String:
+                return new ConstantPoolEntryString(this, data);
+            case CPT_FieldRef:
+                return new ConstantPoolEntryFieldRef(this, data);
+            case CPT_MethodRef:
+                return new ConstantPoolEntryMethodRef(this, data, false);
+            case CPT_InterfaceMethodRef:
+                return new ConstantPoolEntryMethodRef(this, data, true);
+            case CPT_Class:
+                return new ConstantPoolEntryClass(this, data);
+            case CPT_Double:
+                return new ConstantPoolEntryDouble(this, data);
+            case CPT_Float:
+                return new ConstantPoolEntryFloat(this, data);
+            case CPT_Long:
+                return new ConstantPoolEntryLong(this, data);
+            case CPT_Integer:
+                return new ConstantPoolEntryInteger(this, data);
+            case CPT_UTF8:
+                return new ConstantPoolEntryUTF8(this, data, options);
+            case CPT_MethodHandle:
+                return new ConstantPoolEntryMethodHandle(this, data);
+            case CPT_MethodType:
+                return new ConstantPoolEntryMethodType(this, data);
+            case CPT_DynamicInfo:
+                return new ConstantPoolEntryDynamicInfo(this, data);
+            case CPT_InvokeDynamic:
+                return new ConstantPoolEntryInvokeDynamic(this, data);
+            case CPT_ModuleInfo:
+                return new ConstantPoolEntryModuleInfo(this, data);
+            case CPT_PackageInfo:
+                return new ConstantPoolEntryPackageInfo(this, data);
+            default:
+                throw new ConfusedCFRException("Invalid constant pool entry : " + type);
+        }
     }
 
     public long getRawByteLength() {
@@ -153,10 +210,29 @@ public class ConstantPool {
     public ConstantPoolEntry getEntry(int index) {
         if (index == 0) throw new ConfusedCFRException("Attempt to fetch element 0 from constant pool");
         // NB: Constant pool entries are 1 based.
-        if (index > entries.size()) {
-            throw new IndexOutOfBoundsException("Constant pool has " + entries.size() + " entries - attempted to access entry #" + (index-1));
+        if (index > entries.length()) {
+            throw new IndexOutOfBoundsException("Constant pool has " + entries.length() + " entries - attempted to access entry #" + (index-1));
+        }
+        ConstantPoolEntry entry = entries.get(index - 1);
+        if (entry == null && offsets != null) {
+            entry = buildEntry(index - 1);
+        }
+        return entry;
+    }
+
+    /*
+     * Entries may be requested by several threads at once - if we race, everyone uses the first one
+     * published, as entries cache derived state.
+     */
+    private ConstantPoolEntry buildEntry(int slot) {
+        int offset = offsets[slot];
+        if (offset < 0) return null;
+        ByteData data = raw.getOffsetData(offset);
+        ConstantPoolEntry entry = createEntry(ConstantPoolEntry.Type.get(data.getS1At(0)), data);
+        if (!entries.compareAndSet(slot, null, entry)) {
+            entry = entries.get(slot);
         }
-        return entries.get(index - 1);
+        return entry;
     }
 
     public ConstantPoolEntryUTF8 getUTF8Entry(int index) {
@@ -8,6 +8,7 @@ import org.benf.cfr.reader.bytecode.analysis.variables.VariableNamer;
 import org.benf.cfr.reader.entities.ClassFile;
 import org.benf.cfr.reader.entities.Method;
 import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.DescriptorCache;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.MalformedPrototypeException;
 import org.benf.cfr.reader.util.MiscConstants;
@@ -64,6 +65,18 @@ public class ConstantPoolUtils {
     }
 
     public static JavaTypeInstance decodeTypeTok(String tok, ConstantPool cp) {
+        // Primitives are trivial, and anything generic can't be shared.
+        if (tok.length() == 1 || tok.indexOf('<') != -1) return decodeTypeTokUncached(tok, cp);
+        DescriptorCache descriptorCache = cp.getClassCache().getDescriptorCache();
+        JavaTypeInstance res = descriptorCache.getType(tok);
+        if (res == null) {
+            res = decodeTypeTokUncached(tok, cp);
+            descriptorCache.putType(tok, res);
+        }
+        return res;
+    }
+
+    private static JavaTypeInstance decodeTypeTokUncached(String tok, ConstantPool cp) {
         int idx = 0;
         int numArrayDims = 0;
         char c = tok.charAt(idx);
@@ -293,6 +306,12 @@ public class ConstantPoolUtils {
 
     public static MethodPrototype parseJavaMethodPrototype(DCCommonState state, ClassFile classFile, JavaTypeInstance classType, String name, boolean instanceMethod, Method.MethodConstructor constructorFlag, ConstantPoolEntryUTF8 prototype, ConstantPool cp, boolean varargs, boolean synthetic, VariableNamer variableNamer) {
         String proto = prototype.getValue();
+        DescriptorCache descriptorCache = cp.getClassCache().getDescriptorCache();
+        DescriptorCache.MethodDescriptor cached = descriptorCache.getMethodDescriptor(proto);
+        if (cached != null) {
+            // MethodPrototype may alter its args, so needs its own copy.
+            return new MethodPrototype(state, classFile, classType, name, instanceMethod, constructorFlag, null, ListFactory.newList(cached.getArgs()), cached.getResult(), Collections.<JavaTypeInstance>emptyList(), varargs, variableNamer, synthetic);
+        }
         try {
             int curridx = 0;
             /*
@@ -336,6 +355,9 @@ public class ConstantPoolUtils {
                     curridx = processTypeEntry(cp, proto, curridx, ftpMap, exceptions);
                 }
             }
+            if (formalTypeParameters == null && exceptions.isEmpty()) {
+                descriptorCache.putMethodDescriptor(proto, args, resultType);
+            }
             return new MethodPrototype(state, classFile, classType, name, instanceMethod, constructorFlag, formalTypeParameters, args, resultType, exceptions, varargs, variableNamer, synthetic);
         } catch (StringIndexOutOfBoundsException e) {
             throw new MalformedPrototypeException(proto, e);
@@ -14,13 +14,15 @@ import org.benf.cfr.reader.util.functors.Predicate;
 import org.benf.cfr.reader.util.functors.UnaryFunction;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.collections.IntIntMap;
+import org.benf.cfr.reader.util.collections.IntSortedMap;
 
 import java.util.*;
 
 public class ExceptionAggregator {
 
     private final List<ExceptionGroup> exceptionsByRange = ListFactory.newList();
-    private final Map<Integer, Integer> lutByOffset;
+    private final IntSortedMap lutByOffset;
     private final List<Op01WithProcessedDataAndByteJumps> instrs;
     private final boolean aggressiveAggregate;
     private final boolean aggressiveAggregate2;
@@ -101,8 +103,8 @@ public class ExceptionAggregator {
         boolean veryAggressive = false;
 
         while (current < startNext) {
-            Integer idx = lutByOffset.get(current);
-            if (idx == null) return false;
+            int idx = lutByOffset.get(current, -1);
+            if (idx == -1) return false;
             Op01WithProcessedDataAndByteJumps op = instrs.get(idx);
             JVMInstr instr = op.getJVMInstr();
             if (instr.isNoThrow()) {
@@ -183,7 +185,7 @@ public class ExceptionAggregator {
     * In that case, we should split the exception regime into non-overlapping sections.
     */
     public ExceptionAggregator(List<ExceptionTableEntry> rawExceptions, BlockIdentifierFactory blockIdentifierFactory,
-                               final Map<Integer, Integer> lutByOffset,
+                               final IntSortedMap lutByOffset,
                                List<Op01WithProcessedDataAndByteJumps> instrs,
                                final Options options,
                                final ConstantPool cp,
@@ -217,8 +219,8 @@ public class ExceptionAggregator {
 
             do {
                 exceptionTableEntryOrig = exceptionTableEntry;
-                Integer tgtIdx = lutByOffset.get(indexTo);
-                if (tgtIdx != null) {
+                int tgtIdx = lutByOffset.get(indexTo, -1);
+                if (tgtIdx != -1) {
 
                     // See if the last statement is a direct return, which could be pushed in.  If so, expand try block.
                     int offset = canExpandTryBy(tgtIdx, instrs);
@@ -351,8 +353,8 @@ public class ExceptionAggregator {
     /*
      * Remove try statements which simply jump to monitorexit+ , throw statements.
      */
-    public void removeSynchronisedHandlers(final Map<Integer, Integer> lutByOffset,
-                                           final Map<Integer, Integer> lutByIdx,
+    public void removeSynchronisedHandlers(final IntSortedMap lutByOffset,
+                                           final IntIntMap lutByIdx,
                                            List<Op01WithProcessedDataAndByteJumps> instrs) {
         Iterator<ExceptionGroup> groupIterator = exceptionsByRange.iterator();
         while (groupIterator.hasNext()) {
@@ -392,7 +394,7 @@ public class ExceptionAggregator {
      * We should then re-cover the try block with the coverage which is applied to the exception handler (if any).
      *
      */
-    public void aggressivePruning(final Map<Integer, Integer> lutByOffset,
+    public void aggressivePruning(final IntSortedMap lutByOffset,
                                   List<Op01WithProcessedDataAndByteJumps> instrs) {
         Iterator<ExceptionGroup> groupIterator = exceptionsByRange.iterator();
         while (groupIterator.hasNext()) {
@@ -401,8 +403,8 @@ public class ExceptionAggregator {
             if (entries.size() != 1) continue;
             ExceptionGroup.Entry entry = entries.get(0);
             int handler = entry.getBytecodeIndexHandler();
-            Integer index = lutByOffset.get(handler);
-            if (index == null) continue;
+            int index = lutByOffset.get(handler, -1);
+            if (index == -1) continue;
             Op01WithProcessedDataAndByteJumps handlerStartInstr = instrs.get(index);
             if (handlerStartInstr.getJVMInstr() == JVMInstr.ATHROW) {
                 groupIterator.remove();
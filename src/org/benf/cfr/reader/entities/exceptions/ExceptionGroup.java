@@ -10,10 +10,11 @@ import org.benf.cfr.reader.bytecode.opcode.JVMInstr;
 import org.benf.cfr.reader.entities.constantpool.ConstantPool;
 import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.StringUtils;
+import org.benf.cfr.reader.util.collections.IntIntMap;
+import org.benf.cfr.reader.util.collections.IntSortedMap;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 public class ExceptionGroup {
 
@@ -58,8 +59,8 @@ public class ExceptionGroup {
         return tryBlockIdentifier;
     }
 
-    public void removeSynchronisedHandlers(final Map<Integer, Integer> lutByOffset,
-                                           final Map<Integer, Integer> lutByIdx,
+    public void removeSynchronisedHandlers(final IntSortedMap lutByOffset,
+                                           final IntIntMap lutByIdx,
                                            List<Op01WithProcessedDataAndByteJumps> instrs) {
         Iterator<Entry> entryIterator = entries.iterator();
         while (entryIterator.hasNext()) {
@@ -69,8 +70,8 @@ public class ExceptionGroup {
     }
 
     private boolean isSynchronisedHandler(Entry entry,
-                                          final Map<Integer, Integer> lutByOffset,
-                                          final Map<Integer, Integer> lutByIdx,
+                                          final IntSortedMap lutByOffset,
+                                          final IntIntMap lutByIdx,
                                           List<Op01WithProcessedDataAndByteJumps> instrs) {
         /*
          * TODO : Type should be 'any'.
@@ -80,10 +81,9 @@ public class ExceptionGroup {
         /*
          * We expect - astore X, (aload, monitorexit)+, aload X, athrow
          */
-        Integer offset = lutByOffset.get(tableEntry.getBytecodeIndexHandler());
-        if (offset == null) return false;
+        int idx = lutByOffset.get(tableEntry.getBytecodeIndexHandler(), -1);
+        if (idx == -1) return false;
 
-        int idx = offset;
         if (idx >= instrs.size()) return false;
 
         Op01WithProcessedDataAndByteJumps start = instrs.get(idx);
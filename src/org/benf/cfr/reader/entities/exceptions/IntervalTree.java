@@ -0,0 +1,188 @@
+package org.benf.cfr.reader.entities.exceptions;
+
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Exception table entries, which can be asked for the ones which cross a given offset.
+ *
+ * A treap, ordered by start (and then by when the entry was added), where each node knows the furthest end
+ * beneath it - so we can skip whole subtrees which finish too early, and only visit (roughly) the entries
+ * we return.
+ *
+ * Entries are compared by identity - an entry which is added twice is only held once.
+ */
+class IntervalTree {
+    private final Map<ExceptionTableEntry, Node> nodes = MapFactory.newIdentityMap();
+    private Node root;
+    private long nextSeq;
+
+    private static class Node {
+        private final ExceptionTableEntry entry;
+        private final int start;
+        private final int end;
+        private final long seq;
+        private final long priority;
+        private int maxEnd;
+        private Node left;
+        private Node right;
+
+        private Node(ExceptionTableEntry entry, long seq) {
+            this.entry = entry;
+            this.start = entry.getBytecodeIndexFrom();
+            this.end = entry.getBytecodeIndexTo();
+            this.seq = seq;
+            // Deterministic, so the shape of the tree (not that it matters) is the same each time.
+            this.priority = seq * 0x9E3779B97F4A7C15L;
+            this.maxEnd = end;
+        }
+
+        private int compareTo(Node other) {
+            if (start != other.start) return start < other.start ? -1 : 1;
+            return seq < other.seq ? -1 : (seq == other.seq ? 0 : 1);
+        }
+
+        private void update() {
+            int res = end;
+            if (left != null && left.maxEnd > res) res = left.maxEnd;
+            if (right != null && right.maxEnd > res) res = right.maxEnd;
+            maxEnd = res;
+        }
+    }
+
+    private static final Comparator<Node> byEnd = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            if (a.end != b.end) return a.end < b.end ? -1 : 1;
+            return a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1);
+        }
+    };
+
+    void add(ExceptionTableEntry e) {
+        if (nodes.containsKey(e)) return;
+        Node node = new Node(e, nextSeq++);
+        nodes.put(e, node);
+        root = insert(root, node);
+    }
+
+    void remove(ExceptionTableEntry e) {
+        Node node = nodes.remove(e);
+        if (node == null) return;
+        root = delete(root, node);
+    }
+
+    private static Node insert(Node at, Node node) {
+        if (at == null) return node;
+        if (node.compareTo(at) < 0) {
+            at.left = insert(at.left, node);
+            if (at.left.priority > at.priority) at = rotateRight(at);
+        } else {
+            at.right = insert(at.right, node);
+            if (at.right.priority > at.priority) at = rotateLeft(at);
+        }
+        at.update();
+        return at;
+    }
+
+    private static Node delete(Node at, Node node) {
+        if (at == null) return null;
+        int cmp = node.compareTo(at);
+        if (cmp < 0) {
+            at.left = delete(at.left, node);
+        } else if (cmp > 0) {
+            at.right = delete(at.right, node);
+        } else {
+            if (at.left == null) return at.right;
+            if (at.right == null) return at.left;
+            // Rotate the node down until it can be unlinked.
+            if (at.left.priority > at.right.priority) {
+                at = rotateRight(at);
+                at.right = delete(at.right, node);
+            } else {
+                at = rotateLeft(at);
+                at.left = delete(at.left, node);
+            }
+        }
+        at.update();
+        return at;
+    }
+
+    private static Node rotateRight(Node at) {
+        Node res = at.left;
+        at.left = res.right;
+        res.right = at;
+        at.update();
+        res.update();
+        return res;
+    }
+
+    private static Node rotateLeft(Node at) {
+        Node res = at.right;
+        at.right = res.left;
+        res.left = at;
+        at.update();
+        res.update();
+        return res;
+    }
+
+    /*
+     * Entries which start before point, and end after it, ordered by start.
+     */
+    List<ExceptionTableEntry> getCrossingByStart(int point) {
+        List<Node> found = ListFactory.newList();
+        collectCrossing(root, point, found);
+        return toEntries(found);
+    }
+
+    /*
+     * As above, ordered by end.
+     */
+    List<ExceptionTableEntry> getCrossingByEnd(int point) {
+        List<Node> found = ListFactory.newList();
+        collectCrossing(root, point, found);
+        Collections.sort(found, byEnd);
+        return toEntries(found);
+    }
+
+    /*
+     * In order, so by start - and anything which starts at or after point (to the right), can't cross it.
+     */
+    private static void collectCrossing(Node at, int point, List<Node> into) {
+        while (at != null && at.maxEnd > point) {
+            collectCrossing(at.left, point, into);
+            if (at.start >= point) return;
+            if (at.end > point) into.add(at);
+            at = at.right;
+        }
+    }
+
+    /*
+     * Everything, ordered by start.
+     */
+    List<ExceptionTableEntry> getAll() {
+        List<Node> found = ListFactory.newList(nodes.size());
+        collectAll(root, found);
+        return toEntries(found);
+    }
+
+    private static void collectAll(Node at, List<Node> into) {
+        while (at != null) {
+            collectAll(at.left, into);
+            into.add(at);
+            at = at.right;
+        }
+    }
+
+    private static List<ExceptionTableEntry> toEntries(List<Node> found) {
+        List<ExceptionTableEntry> res = ListFactory.newList(found.size());
+        for (Node node : found) {
+            res.add(node.entry);
+        }
+        return res;
+    }
+}
@@ -4,11 +4,13 @@ import org.benf.cfr.reader.bytecode.analysis.types.JavaArrayTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.MethodPrototype;
+import org.benf.cfr.reader.entities.AccessFlag;
 import org.benf.cfr.reader.entities.innerclass.InnerClassAttributeInfo;
 import org.benf.cfr.reader.state.DetectedStaticImport;
 import org.benf.cfr.reader.state.TypeUsageInformation;
 import org.benf.cfr.reader.state.TypeUsageInformationImpl;
 import org.benf.cfr.reader.util.collections.Functional;
+import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
 import org.benf.cfr.reader.util.collections.SetFactory;
 import org.benf.cfr.reader.util.functors.UnaryFunction;
@@ -18,28 +20,73 @@ import org.benf.cfr.reader.util.output.Dumper;
 import org.benf.cfr.reader.util.output.IllegalIdentifierDump;
 import org.benf.cfr.reader.util.output.TypeContext;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/*
+ * A mapping file can be far bigger than the part of it any one class uses - so entries are only bound to
+ * types (which belong to the ClassCache we were made with) when a type is first looked up.
+ */
 public class Mapping implements ObfuscationMapping {
     // NB: This is a map of *erased* types.  If they type we're reconstructing is generic, we
     // need to reconstruct it.
+    // Null for types which have been looked up, and aren't mapped.
     private final Map<JavaTypeInstance, ClassMapping> erasedTypeMap = MapFactory.newMap();
+    private final Map<JavaTypeInstance, List<InnerClassAttributeInfo>> innerInfo = MapFactory.newMap();
+    // Obfuscated types we've handed out, with what they're an inner class of set.
+    private final Map<MappingFile.ClassEntry, JavaRefTypeInstance> obTypes = MapFactory.newIdentityMap();
     private final UnaryFunction<JavaTypeInstance, JavaTypeInstance> getter = new UnaryFunction<JavaTypeInstance, JavaTypeInstance>() {
         @Override
         public JavaTypeInstance invoke(JavaTypeInstance arg) {
             return get(arg);
         }
     };
-    private Options options;
-    private Map<JavaTypeInstance, List<InnerClassAttributeInfo>> innerInfo;
+    private final Options options;
+    private final MappingFactory factory;
+    private final MappingFile mappingFile;
 
-    Mapping(Options options, List<ClassMapping> classMappings, Map<JavaTypeInstance, List<InnerClassAttributeInfo>> innerInfo) {
+    Mapping(Options options, MappingFactory factory, MappingFile mappingFile) {
         this.options = options;
-        this.innerInfo = innerInfo;
-        for (ClassMapping cls : classMappings) {
-            erasedTypeMap.put(cls.getObClass(), cls);
+        this.factory = factory;
+        this.mappingFile = mappingFile;
+    }
+
+    /*
+     * The entry for an erased type, as long as binding it gets the same type back.
+     */
+    private MappingFile.ClassEntry getClassEntry(JavaTypeInstance type) {
+        if (!(type instanceof JavaRefTypeInstance)) return null;
+        MappingFile.ClassEntry classEntry = mappingFile.getClassEntry(((JavaRefTypeInstance) type).getOriginalRawName());
+        if (classEntry == null || !getObType(classEntry).equals(type)) return null;
+        return classEntry;
+    }
+
+    private JavaRefTypeInstance getObType(MappingFile.ClassEntry classEntry) {
+        JavaRefTypeInstance res = obTypes.get(classEntry);
+        if (res == null) {
+            res = factory.getRefType(classEntry.obName);
+            obTypes.put(classEntry, res);
+            MappingFile.ClassEntry parent = classEntry.getParent();
+            if (parent != null) {
+                /*
+                 * We will have to ALTER the inner class info of the child, as that won't have been detected
+                 * when it was created.
+                 */
+                res.setUnexpectedInnerClassOf(getObType(parent));
+            }
+        }
+        return res;
+    }
+
+    private ClassMapping getErasedMapping(JavaTypeInstance type) {
+        synchronized (erasedTypeMap) {
+            if (erasedTypeMap.containsKey(type)) return erasedTypeMap.get(type);
+            MappingFile.ClassEntry classEntry = getClassEntry(type);
+            ClassMapping res = classEntry == null ? null : factory.getClassMapping(classEntry, getObType(classEntry));
+            erasedTypeMap.put(type, res);
+            return res;
         }
     }
 
@@ -58,7 +105,7 @@ public class Mapping implements ObfuscationMapping {
         if (type == null) return null;
         int numDim = type.getNumArrayDimensions();
         JavaTypeInstance strippedType = type.getArrayStrippedType();
-        ClassMapping c = erasedTypeMap.get(strippedType);
+        ClassMapping c = getErasedMapping(strippedType);
         if (c == null) {
             return type;
         }
@@ -80,12 +127,28 @@ public class Mapping implements ObfuscationMapping {
     }
 
     ClassMapping getClassMapping(JavaTypeInstance type) {
-        return erasedTypeMap.get(type.getDeGenerifiedType());
+        return getErasedMapping(type.getDeGenerifiedType());
     }
 
     @Override
     public List<InnerClassAttributeInfo> getInnerClassInfo(JavaTypeInstance classType) {
-        return innerInfo.get(classType);
+        synchronized (erasedTypeMap) {
+            if (innerInfo.containsKey(classType)) return innerInfo.get(classType);
+            List<InnerClassAttributeInfo> res = null;
+            MappingFile.ClassEntry classEntry = getClassEntry(classType);
+            if (classEntry != null && (classEntry.getParent() != null || !classEntry.getChildren().isEmpty())) {
+                res = ListFactory.newList();
+                JavaRefTypeInstance obType = getObType(classEntry);
+                if (classEntry.getParent() != null) {
+                    res.add(new InnerClassAttributeInfo(obType, getObType(classEntry.getParent()), null, Collections.<AccessFlag>emptySet()));
+                }
+                for (MappingFile.ClassEntry child : classEntry.getChildren()) {
+                    res.add(new InnerClassAttributeInfo(getObType(child), obType, null, Collections.<AccessFlag>emptySet()));
+                }
+            }
+            innerInfo.put(classType, res);
+            return res;
+        }
     }
 
     @Override
@@ -201,7 +264,7 @@ public class Mapping implements ObfuscationMapping {
         @Override
         public Dumper methodName(String s, MethodPrototype p, boolean special, boolean defines) {
             JavaTypeInstance classType = p == null ? null : p.getClassType();
-            ClassMapping c = classType == null ? null : erasedTypeMap.get(classType.getDeGenerifiedType());
+            ClassMapping c = classType == null ? null : getErasedMapping(classType.getDeGenerifiedType());
             if (c == null || special) {
                 delegate.methodName(s, p, special, defines);
                 return this;
@@ -214,7 +277,7 @@ public class Mapping implements ObfuscationMapping {
         @Override
         public Dumper fieldName(String name, JavaTypeInstance owner, boolean hiddenDeclaration, boolean isStatic, boolean defines) {
             JavaTypeInstance deGenerifiedType = owner.getDeGenerifiedType();
-            ClassMapping c = erasedTypeMap.get(deGenerifiedType);
+            ClassMapping c = getErasedMapping(deGenerifiedType);
             if (c == null || hiddenDeclaration) {
                 delegate.fieldName(name, owner, hiddenDeclaration, isStatic, defines);
             } else {
@@ -226,7 +289,7 @@ public class Mapping implements ObfuscationMapping {
         @Override
         public Dumper packageName(JavaRefTypeInstance t) {
             JavaTypeInstance deGenerifiedType = t.getDeGenerifiedType();
-            ClassMapping c = erasedTypeMap.get(deGenerifiedType);
+            ClassMapping c = getErasedMapping(deGenerifiedType);
             if (c == null) {
                 delegate.packageName(t);
             } else {
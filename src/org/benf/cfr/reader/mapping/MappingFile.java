@@ -0,0 +1,218 @@
+package org.benf.cfr.reader.mapping;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+import org.benf.cfr.reader.util.MiscConstants;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * The textual content of a mapping file, parsed but not yet bound to any types.
+ *
+ * Types belong to a ClassCache, which is discarded after each class we analyse - but the file doesn't
+ * change, so there's no point in reading and pattern matching it each time.  We keep the most recently
+ * used file (softly - it can be large), and only re-read it if it changes on disk.
+ *
+ * Entries are indexed by obfuscated name, and know which entries their inner classes are (as inferred from
+ * the real names), so a Mapping can find and bind just the ones it's asked about.
+ *
+ * Immutable once built, so safe to share between threads.
+ */
+class MappingFile {
+    private static final Object lock = new Object();
+    private static SoftReference<MappingFile> last;
+
+    private final String path;
+    private final long length;
+    private final long lastModified;
+    private final Map<String, ClassEntry> byObName = MapFactory.newMap();
+
+    private MappingFile(String path, long length, long lastModified, List<ClassEntry> classes) {
+        this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+        Map<String, ClassEntry> byRealName = MapFactory.newMap();
+        for (ClassEntry classEntry : classes) {
+            byObName.put(classEntry.obName, classEntry);
+            byRealName.put(classEntry.realName, classEntry);
+        }
+        for (ClassEntry classEntry : classes) {
+            int idx = classEntry.realName.lastIndexOf(MiscConstants.INNER_CLASS_SEP_CHAR);
+            if (idx == -1) continue;
+            ClassEntry parent = byRealName.get(classEntry.realName.substring(0, idx));
+            if (parent == null) continue;
+            classEntry.parent = parent;
+            parent.children.add(classEntry);
+        }
+    }
+
+    static MappingFile get(String path) {
+        File file = new File(path);
+        String absolutePath = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (lock) {
+            MappingFile res = last == null ? null : last.get();
+            if (res != null && res.path.equals(absolutePath) && res.length == length && res.lastModified == lastModified) {
+                return res;
+            }
+            res = new MappingFile(absolutePath, length, lastModified, new Parser().parse(path));
+            last = new SoftReference<MappingFile>(res);
+            return res;
+        }
+    }
+
+    /*
+     * Null if the class isn't mapped.
+     */
+    ClassEntry getClassEntry(String obName) {
+        return byObName.get(obName);
+    }
+
+    static class ClassEntry {
+        final String realName;
+        final String obName;
+        // In file order.
+        private final List<MemberEntry> members = ListFactory.newList();
+        // The class this is an inner class of, if that's mapped too.
+        private ClassEntry parent;
+        // In file order.
+        private final List<ClassEntry> children = ListFactory.newList();
+
+        private ClassEntry(String realName, String obName) {
+            this.realName = realName;
+            this.obName = obName;
+        }
+
+        List<MemberEntry> getMembers() {
+            return members;
+        }
+
+        ClassEntry getParent() {
+            return parent;
+        }
+
+        List<ClassEntry> getChildren() {
+            return children;
+        }
+    }
+
+    static class MemberEntry {
+        final String type;
+        final String name;
+        final List<String> argTypes;
+        final String rename;
+
+        private MemberEntry(String type, String name, List<String> argTypes, String rename) {
+            this.type = type;
+            this.name = name;
+            this.argTypes = argTypes;
+            this.rename = rename;
+        }
+
+        // Fields don't have an argument list.
+        boolean isMethod() {
+            return argTypes != null;
+        }
+    }
+
+    private static class Parser {
+        private static final Pattern fieldPattern = Pattern.compile("^\\s*(\\d+:\\d+:)?([^ ]+)\\s+(.*) -> (.*)$");
+        private static final Pattern methodPattern = Pattern.compile("^\\s*(\\d+:\\d+:)?([^ ]+)\\s+([^(]+)[(](.*)[)] -> (.*)$");
+        private static final Pattern classPattern = Pattern.compile("^(.+) -> (.+):$");
+
+        // Type names in particular are repeated endlessly.
+        private final Map<String, String> strings = MapFactory.newMap();
+
+        private String intern(String s) {
+            String res = strings.get(s);
+            if (res == null) {
+                strings.put(s, s);
+                res = s;
+            }
+            return res;
+        }
+
+        List<ClassEntry> parse(String path) {
+            List<ClassEntry> classEntries = ListFactory.newList();
+            try {
+                BufferedReader isr = new BufferedReader(new InputStreamReader(new FileInputStream(path)));
+                try {
+                    ClassEntry current = null;
+                    do {
+                        String line = isr.readLine();
+                        if (line == null) break;
+                        if (line.startsWith("#") || line.isEmpty()) continue;
+                        if (line.endsWith(":")) {
+                            current = parseClass(line);
+                            classEntries.add(current);
+                            continue;
+                        }
+                        if (current == null) {
+                            throw new ConfusedCFRException("No class mapping in place - illegal mapping file?");
+                        }
+                        current.members.add(line.contains(") ") ? parseMethod(line) : parseField(line));
+                    } while (true);
+                } finally {
+                    isr.close();
+                }
+            } catch (FileNotFoundException e) {
+                throw new ConfusedCFRException(e);
+            } catch (IOException e) {
+                throw new ConfusedCFRException(e);
+            }
+            return classEntries;
+        }
+
+        // com.blah.blah2.Example -> a:
+        private ClassEntry parseClass(String line) {
+            Matcher m = classPattern.matcher(line);
+            if (!m.matches()) {
+                throw new ConfusedCFRException("Can't match class: " + line);
+            }
+            return new ClassEntry(intern(m.group(1)), intern(m.group(2)));
+        }
+
+        // java.lang.Integer color -> D
+        private MemberEntry parseField(String line) {
+            Matcher m = fieldPattern.matcher(line);
+            if (!m.matches()) {
+                throw new ConfusedCFRException("Can't match field: " + line);
+            }
+            return new MemberEntry(intern(m.group(2)), intern(m.group(3)), null, intern(m.group(4)));
+        }
+
+        // 114:114:java.lang.Integer getColor() -> e
+        private MemberEntry parseMethod(String line) {
+            Matcher m = methodPattern.matcher(line);
+            if (!m.matches()) {
+                throw new ConfusedCFRException("Can't match method: " + line);
+            }
+            String args = m.group(4);
+            List<String> argTypes;
+            if (args.isEmpty()) {
+                argTypes = Collections.emptyList();
+            } else {
+                argTypes = ListFactory.newList();
+                for (String arg : args.split(",")) {
+                    arg = arg.trim();
+                    if (arg.isEmpty()) continue;
+                    argTypes.add(intern(arg));
+                }
+            }
+            return new MemberEntry(intern(m.group(2)), intern(m.group(3)), argTypes, intern(m.group(5)));
+        }
+    }
+}
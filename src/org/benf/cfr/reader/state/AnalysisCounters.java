@@ -0,0 +1,92 @@
+package org.benf.cfr.reader.state;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Counters which used to be static, and so were shared by every decompilation in the JVM.
+ *
+ * One of these is created with each DCCommonState, and shared with the copies made of it.  So an analysis
+ * numbers from 0 whatever else is running alongside it.
+ *
+ * Identity ids (inferred types, stack entries...) can reach the output (stack labels are dumped as v<id>),
+ * and some passes order by them, so they have to follow the order things were made in - which isn't true
+ * of a shared sequence once passes run on several threads.  So each recovery pass of a method gets an
+ * IdScope of its own, bound to whichever thread is running that pass - ids are then (scope << 32 | n),
+ * unique, ascending in creation order within the pass, and n is the same however the pass was scheduled.
+ * Loading a class file, and whole class analysis outside any pass, get scopes of their own in the same way.
+ *
+ * Scope numbers themselves are the one thing handed out JVM wide - constant InferredJavaTypes are shared by
+ * every analysis, and get ids from whichever scope was bound when their class was initialised, so a scope
+ * mustn't be reused by another analysis.  That's one increment per scope, and never reaches the output.
+ *
+ * Anything made outside all of those gets scope 0 - it wraps, rather than run on into scope 1.
+ */
+public class AnalysisCounters {
+    private static final long ID_MASK = 0xffffffffL;
+    // Keeps ids positive - and it'll be a while before we wrap.
+    private static final long MAX_SCOPE = Integer.MAX_VALUE;
+    private static final AtomicLong unscopedIds = new AtomicLong();
+    private static final AtomicLong idScopes = new AtomicLong();
+    private static final ThreadLocal<IdScope> currentScope = new ThreadLocal<IdScope>();
+
+    private final AtomicInteger longStrings = new AtomicInteger();
+    private final AtomicInteger constantPools = new AtomicInteger();
+
+    public int nextLongStringIdx() {
+        return longStrings.getAndIncrement();
+    }
+
+    public int nextConstantPoolIdx() {
+        return constantPools.getAndIncrement();
+    }
+
+    public IdScope newIdScope() {
+        long scope = idScopes.getAndIncrement() % MAX_SCOPE + 1;
+        return new IdScope(scope << 32);
+    }
+
+    public static long nextId() {
+        IdScope scope = currentScope.get();
+        if (scope == null) return unscopedIds.getAndIncrement() & ID_MASK;
+        return scope.next();
+    }
+
+    /*
+     * The part of an id which is stable for a given pass.
+     */
+    public static long displayId(long id) {
+        return id & ID_MASK;
+    }
+
+    public static class IdScope {
+        private final long base;
+        // Only ever used by the thread it's bound to.
+        private long next;
+
+        private IdScope(long base) {
+            this.base = base;
+        }
+
+        private long next() {
+            return base | next++;
+        }
+
+        /*
+         * Returns whatever was bound before, to be given back to restore.
+         */
+        public IdScope bind() {
+            IdScope previous = currentScope.get();
+            currentScope.set(this);
+            return previous;
+        }
+
+        public static void restore(IdScope previous) {
+            if (previous == null) {
+                currentScope.remove();
+            } else {
+                currentScope.set(previous);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
 import org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.TypeConstants;
+import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
 import org.benf.cfr.reader.util.collections.SetFactory;
 
@@ -18,6 +19,7 @@ public class ClassCache {
     // This is a nice simple check.
     private final Set<String> simpleClassNamesSeen = SetFactory.newSet();
     private final Map<String, String> renamedClasses = MapFactory.newMap();
+    private final DescriptorCache descriptorCache = new DescriptorCache();
 
     private final DCCommonState dcCommonState;
 
@@ -30,7 +32,7 @@ public class ClassCache {
         add(TypeConstants.ENUM.getRawName(), TypeConstants.ENUM);
     }
 
-    public JavaRefTypeInstance getRefClassFor(String rawClassName) {
+    public synchronized JavaRefTypeInstance getRefClassFor(String rawClassName) {
         /*
          * If the path (or pseudopath) has been renamed because it's a collision,
          * we need to replace with the deduplicated version - otherwise the file
@@ -63,11 +65,11 @@ public class ClassCache {
         }
     }
 
-    public boolean isClassName(String name) {
+    public synchronized boolean isClassName(String name) {
         return simpleClassNamesSeen.contains(name);
     }
 
-    public Pair<JavaRefTypeInstance, JavaRefTypeInstance> getRefClassForInnerOuterPair(String rawInnerName, String rawOuterName) {
+    public synchronized Pair<JavaRefTypeInstance, JavaRefTypeInstance> getRefClassForInnerOuterPair(String rawInnerName, String rawOuterName) {
         String innerName = ClassNameUtils.convertFromPath(rawInnerName);
         String outerName = ClassNameUtils.convertFromPath(rawOuterName);
         JavaRefTypeInstance inner = refClassTypeCache.get(innerName);
@@ -86,11 +88,15 @@ public class ClassCache {
 
     }
 
-    public Collection<JavaRefTypeInstance> getLoadedTypes() {
-        return refClassTypeCache.values();
+    public synchronized Collection<JavaRefTypeInstance> getLoadedTypes() {
+        return ListFactory.newList(refClassTypeCache.values());
     }
 
-    String getOriginalName(String typeName) {
+    public DescriptorCache getDescriptorCache() {
+        return descriptorCache;
+    }
+
+    synchronized String getOriginalName(String typeName) {
         return renamedClasses.get(typeName);
     }
 }
@@ -27,6 +27,7 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.util.*;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 import static org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils.getPackageAndClassNames;
@@ -35,7 +36,10 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
     private final Set<String> explicitJars = SetFactory.newSet();
     private Map<String, JarSourceEntry> classToPathMap;
     private final Options options;
+    private final ZipFileCache zipFileCache;
     private ClassRenamer classRenamer;
+    // Only kept if asked for - see retainRuntimeClasses.
+    private Map<String, byte[]> runtimeClasses;
     /*
      * Initialisation info
      */
@@ -55,6 +59,7 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
 
     public ClassFileSourceImpl(Options options) {
         this.options = options;
+        this.zipFileCache = new ZipFileCache(options.getOption(OptionsImpl.MAX_OPEN_JARS));
     }
 
     private byte[] getBytesFromFile(InputStream is, long length) throws IOException {
@@ -80,7 +85,7 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
     }
 
     @Override
-    public String getPossiblyRenamedPath(String path) {
+    public synchronized String getPossiblyRenamedPath(String path) {
         if (classRenamer == null) return path;
         String res = classRenamer.getRenamedClass(path + ".class");
         if (res == null) return path;
@@ -89,6 +94,14 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
 
     @Override
     public Pair<byte [], String> getClassFileContent(final String inputPath) throws IOException {
+        return Pair.make(getContent(locate(inputPath), inputPath), inputPath);
+    }
+
+    /*
+     * Work out where we're reading from under the lock, as that depends on mutable configuration.
+     * The read itself doesn't need it.
+     */
+    synchronized ClassFileLocation locate(final String inputPath) {
         Map<String, JarSourceEntry> classPathFiles = getClassPathClasses();
 
         JarSourceEntry jarEntry = classPathFiles.get(inputPath);
@@ -100,47 +113,91 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
             path = classRenamer.getOriginalClass(path);
         }
 
-        ZipFile zipFile = null;
-
-        try {
-            InputStream is;
-            long length;
-
-            /*
-             * NB : pathPrefix will be empty the when we load the 'main' class,
-             * and only set if it's not in its 'natural' location.
-             */
-            String usePath = path;
-            if (unexpectedDirectory) {
-                if (usePath.startsWith(classRemovePrefix)) {
-                    usePath = usePath.substring(classRemovePrefix.length());
-                }
-                usePath = pathPrefix + usePath;
+        /*
+         * NB : pathPrefix will be empty the when we load the 'main' class,
+         * and only set if it's not in its 'natural' location.
+         */
+        String usePath = path;
+        if (unexpectedDirectory) {
+            if (usePath.startsWith(classRemovePrefix)) {
+                usePath = usePath.substring(classRemovePrefix.length());
             }
-            boolean forceJar = jarEntry != null && explicitJars.contains(jarEntry.getPath());
-            File file = forceJar ? null : new File(usePath);
-            byte[] content;
-            if (file != null && file.exists()) {
-                is = new FileInputStream(file);
-                length = file.length();
-                content = getBytesFromFile(is, length);
-            } else if (jarEntry != null) {
-                zipFile = new ZipFile(new File(jarEntry.getPath()), ZipFile.OPEN_READ);
-                if (jarEntry.analysisType == AnalysisType.WAR) {
-                    path = MiscConstants.WAR_PREFIX + path;
-                }
-                ZipEntry zipEntry = zipFile.getEntry(path);
-                length = zipEntry.getSize();
-                is = zipFile.getInputStream(zipEntry);
-                content = getBytesFromFile(is, length);
-            } else {
-                // Fallback - can we get the bytes using a java9 extractor?
-                content = getInternalContent(inputPath);
+            usePath = pathPrefix + usePath;
+        }
+        boolean forceJar = jarEntry != null && explicitJars.contains(jarEntry.getPath());
+        File file = forceJar ? null : new File(usePath);
+        if (file != null && file.exists()) {
+            return new ClassFileLocation(file, null, null);
+        }
+        if (jarEntry != null) {
+            if (jarEntry.analysisType == AnalysisType.WAR) {
+                path = MiscConstants.WAR_PREFIX + path;
             }
+            return new ClassFileLocation(null, new File(jarEntry.getPath()), path);
+        }
+        return new ClassFileLocation(null, null, null);
+    }
 
-            return Pair.make(content, inputPath);
-        } finally {
-            if (zipFile != null) zipFile.close();
+    byte[] getContent(ClassFileLocation location, String inputPath) throws IOException {
+        if (location.file != null) {
+            return getBytesFromFile(new FileInputStream(location.file), location.file.length());
+        }
+        if (location.jarFile != null) {
+            ZipFileCache.Handle handle = zipFileCache.acquire(location.jarFile);
+            try {
+                ZipFile zipFile = handle.getZipFile();
+                ZipEntry zipEntry = zipFile.getEntry(location.jarEntryName);
+                return getBytesFromFile(zipFile.getInputStream(zipEntry), zipEntry.getSize());
+            } finally {
+                zipFileCache.release(handle);
+            }
+        }
+        // Fallback - can we get the bytes using a java9 extractor?
+        return getInternalContent(inputPath);
+    }
+
+    /*
+     * Where a class should be read from - either a loose file, an entry in a jar, or (if neither)
+     * the running JRE.
+     */
+    static class ClassFileLocation {
+        final File file;
+        final File jarFile;
+        final String jarEntryName;
+
+        ClassFileLocation(File file, File jarFile, String jarEntryName) {
+            this.file = file;
+            this.jarFile = jarFile;
+            this.jarEntryName = jarEntryName;
+        }
+    }
+
+    /*
+     * Release any jar handles we're holding open.  We remain usable after this - jars will
+     * simply be reopened if required.
+     */
+    public void close() {
+        zipFileCache.close();
+    }
+
+    /*
+     * Forget everything we've learned about the classpath and explicitly added jars, in case they've
+     * changed on disk.  They'll be rescanned on demand.
+     */
+    public synchronized void invalidate() {
+        classToPathMap = null;
+        classRenamer = null;
+        explicitJars.clear();
+        close();
+    }
+
+    /*
+     * Fetching a class from the running JRE is comparatively expensive, and (as the JRE can't change
+     * under us) always gives the same result - so a long running process may want to hang on to them.
+     */
+    public void retainRuntimeClasses() {
+        synchronized (this) {
+            if (runtimeClasses == null) runtimeClasses = MapFactory.newMap();
         }
     }
 
@@ -247,8 +304,25 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
 
     private byte[] getInternalContent(final String inputPath) throws IOException {
         if (JrtPresent) {
+            Map<String, byte[]> retained;
+            synchronized (this) {
+                retained = runtimeClasses;
+            }
+            if (retained != null) {
+                synchronized (retained) {
+                    byte[] res = retained.get(inputPath);
+                    if (res != null) return res;
+                }
+            }
             byte[] res = getContentByFromReflectedClass(inputPath);
-            if (res != null) return res;
+            if (res != null) {
+                if (retained != null) {
+                    synchronized (retained) {
+                        retained.put(inputPath, res);
+                    }
+                }
+                return res;
+            }
         }
         throw new IOException("No such file " + inputPath);
     }
@@ -258,7 +332,7 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
         return addJarContent(jarPath, AnalysisType.JAR).getClassFiles();
     }
 
-    public JarContent addJarContent(String jarPath, AnalysisType analysisType) {
+    public synchronized JarContent addJarContent(String jarPath, AnalysisType analysisType) {
         // Make sure classpath is scraped first, so we'll overwrite it.
         getClassPathClasses();
 
@@ -333,6 +407,10 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
 
             classRenamer = ClassRenamer.create(options);
 
+            // If we're dumping the classpath, the point is to see what's actually in it.
+            String indexPath = options.getOption(OptionsImpl.CLASS_PATH_INDEX);
+            ClassPathIndex index = (indexPath == null || dump) ? null : ClassPathIndex.load(new File(indexPath));
+
             String[] classPaths = classPath.split("" + File.pathSeparatorChar);
             for (String path : classPaths) {
                 if (dump) {
@@ -348,11 +426,11 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
                         File[] files = f.listFiles();
                         if (files != null) {
                             for (File file : files) {
-                                processClassPathFile(file, file.getAbsolutePath(), classToPathMap, AnalysisType.JAR, dump);
+                                processClassPathFile(file, file.getAbsolutePath(), classToPathMap, index, dump);
                             }
                         }
                     } else {
-                        processClassPathFile(f, path, classToPathMap, AnalysisType.JAR, dump);
+                        processClassPathFile(f, path, classToPathMap, index, dump);
                     }
                 } else {
                     if (dump) {
@@ -363,50 +441,78 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
             if (dump) {
                 System.out.println(" */");
             }
+            if (index != null) {
+                index.save();
+            }
         }
         return classToPathMap;
     }
 
-    private void processClassPathFile(File file, String absolutePath, Map<String, JarSourceEntry> classToPathMap, AnalysisType analysisType, boolean dump) {
-        JarContent content = processClassPathFile(file, dump, analysisType);
-        if (content == null) {
+    private void processClassPathFile(File file, String absolutePath, Map<String, JarSourceEntry> classToPathMap, ClassPathIndex index, boolean dump) {
+        Collection<String> classFiles = index == null ? null : index.getClassFiles(file);
+        if (classFiles == null) {
+            // Remember things which aren't jars too, so we don't try to open them again next time.
+            boolean remember = true;
+            if (!file.isFile()) {
+                classFiles = Collections.emptyList();
+            } else {
+                try {
+                    classFiles = scanClassPathFile(file, dump, AnalysisType.JAR).getClassFiles();
+                } catch (ZipException e) {
+                    classFiles = Collections.emptyList();
+                } catch (IOException e) {
+                    // Might not be the jar's fault (out of file handles, say) - so look again next time.
+                    classFiles = Collections.emptyList();
+                    remember = false;
+                }
+            }
+            if (index != null && remember) {
+                index.put(file, ListFactory.newList(classFiles));
+            }
+        }
+        if (classFiles.isEmpty()) {
             return;
         }
-        JarSourceEntry sourceEntry = new JarSourceEntry(analysisType, absolutePath);
-        for (String name : content.getClassFiles()) {
+        JarSourceEntry sourceEntry = new JarSourceEntry(AnalysisType.JAR, absolutePath);
+        for (String name : classFiles) {
             classToPathMap.put(name, sourceEntry);
         }
     }
 
     private JarContent processClassPathFile(final File file, boolean dump, AnalysisType analysisType) {
+        try {
+            return scanClassPathFile(file, dump, analysisType);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private JarContent scanClassPathFile(final File file, boolean dump, AnalysisType analysisType) throws IOException {
         List<String> content = ListFactory.newList();
         Map<String, String> manifest;
+        ZipFileCache.Handle handle = zipFileCache.acquire(file);
         try {
-            ZipFile zipFile = new ZipFile(file, ZipFile.OPEN_READ);
+            ZipFile zipFile = handle.getZipFile();
             manifest = getManifestContent(zipFile);
-            try {
-                Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
-                while (enumeration.hasMoreElements()) {
-                    ZipEntry entry = enumeration.nextElement();
-                    if (!entry.isDirectory()) {
-                        String name = entry.getName();
-                        if (name.endsWith(".class")) {
-                            if (dump) {
-                                System.out.println("  " + name);
-                            }
-                            content.add(name);
-                        } else {
-                            if (dump) {
-                                System.out.println("  [ignoring] " + name);
-                            }
+            Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                if (!entry.isDirectory()) {
+                    String name = entry.getName();
+                    if (name.endsWith(".class")) {
+                        if (dump) {
+                            System.out.println("  " + name);
+                        }
+                        content.add(name);
+                    } else {
+                        if (dump) {
+                            System.out.println("  [ignoring] " + name);
                         }
                     }
                 }
-            } finally {
-                zipFile.close();
             }
-        } catch (IOException e) {
-            return null;
+        } finally {
+            zipFileCache.release(handle);
         }
         if (analysisType == AnalysisType.WAR) {
             // Strip WEB-INF/classes from the front of class files.
@@ -453,7 +559,7 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
     }
 
     @Override
-    public void informAnalysisRelativePathDetail(String usePath, String specPath) {
+    public synchronized void informAnalysisRelativePathDetail(String usePath, String specPath) {
         if (usePath == null && specPath == null) {
             unexpectedDirectory = false;
             pathPrefix = null;
@@ -0,0 +1,171 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Persistent record of which classes are in which classpath jars, so that we don't have to open and
+ * enumerate every jar on every run.
+ *
+ * A jar's entry is only trusted if its size and modification time are unchanged - anything else is
+ * rescanned (and the index rewritten).  Jars we didn't look at this time are dropped when we save.
+ *
+ * Format is deliberately simple - a header, then per jar its path, size, mtime and sorted class names.
+ * Names are front coded (length of prefix shared with the previous name, then the remainder), as
+ * names in a jar share long package prefixes.
+ *
+ * As with DecompilationCache, this is best effort - if the index can't be read, we start afresh, and
+ * if it can't be written, we don't care.
+ */
+class ClassPathIndex {
+    private static final int MAGIC = 0xCF12C1A5;
+    private static final int VERSION = 1;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final File file;
+    private final Map<String, JarEntries> loaded;
+    private final Map<String, JarEntries> used = MapFactory.newOrderedMap();
+    private boolean dirty;
+
+    private ClassPathIndex(File file, Map<String, JarEntries> loaded) {
+        this.file = file;
+        this.loaded = loaded;
+    }
+
+    static ClassPathIndex load(File file) {
+        Map<String, JarEntries> loaded = MapFactory.newMap();
+        if (file.isFile()) {
+            try {
+                read(file, loaded);
+            } catch (IOException e) {
+                loaded.clear();
+            } catch (RuntimeException e) {
+                loaded.clear();
+            }
+        }
+        return new ClassPathIndex(file, loaded);
+    }
+
+    /*
+     * Returns null if we don't know about this jar, or it's changed since we did.
+     */
+    List<String> getClassFiles(File jar) {
+        String absolutePath = jar.getAbsolutePath();
+        JarEntries entries = loaded.get(absolutePath);
+        if (entries == null) return null;
+        if (entries.length != jar.length() || entries.lastModified != jar.lastModified()) return null;
+        used.put(absolutePath, entries);
+        return entries.classFiles;
+    }
+
+    void put(File jar, List<String> classFiles) {
+        String absolutePath = jar.getAbsolutePath();
+        List<String> sorted = ListFactory.newList(classFiles);
+        Collections.sort(sorted);
+        used.put(absolutePath, new JarEntries(jar.length(), jar.lastModified(), sorted));
+        dirty = true;
+    }
+
+    void save() {
+        if (!dirty && used.size() == loaded.size()) return;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) return;
+        File tmp = new File(file.getPath() + TMP_SUFFIX);
+        try {
+            DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                write(os);
+            } finally {
+                os.close();
+            }
+            if (file.exists() && !file.delete()) return;
+            if (!tmp.renameTo(file)) return;
+            dirty = false;
+        } catch (IOException e) {
+            // Best effort.
+        } finally {
+            if (tmp.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+            }
+        }
+    }
+
+    private void write(DataOutputStream os) throws IOException {
+        os.writeInt(MAGIC);
+        os.writeInt(VERSION);
+        os.writeInt(used.size());
+        for (Map.Entry<String, JarEntries> entry : used.entrySet()) {
+            JarEntries jarEntries = entry.getValue();
+            os.writeUTF(entry.getKey());
+            os.writeLong(jarEntries.length);
+            os.writeLong(jarEntries.lastModified);
+            os.writeInt(jarEntries.classFiles.size());
+            String prev = "";
+            for (String name : jarEntries.classFiles) {
+                int common = commonPrefix(prev, name);
+                os.writeShort(common);
+                os.writeUTF(name.substring(common));
+                prev = name;
+            }
+        }
+    }
+
+    private static void read(File file, Map<String, JarEntries> into) throws IOException {
+        DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (is.readInt() != MAGIC || is.readInt() != VERSION) return;
+            int numJars = is.readInt();
+            for (int x = 0; x < numJars; ++x) {
+                String path = is.readUTF();
+                long length = is.readLong();
+                long lastModified = is.readLong();
+                int numClasses = is.readInt();
+                List<String> classFiles = ListFactory.newList();
+                String prev = "";
+                for (int y = 0; y < numClasses; ++y) {
+                    int common = is.readUnsignedShort();
+                    String name = prev.substring(0, common) + is.readUTF();
+                    classFiles.add(name);
+                    prev = name;
+                }
+                into.put(path, new JarEntries(length, lastModified, classFiles));
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(Math.min(a.length(), b.length()), 0xffff);
+        int x = 0;
+        while (x < max && a.charAt(x) == b.charAt(x)) {
+            ++x;
+        }
+        return x;
+    }
+
+    private static class JarEntries {
+        private final long length;
+        private final long lastModified;
+        private final List<String> classFiles;
+
+        private JarEntries(long length, long lastModified, List<String> classFiles) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.classFiles = classFiles;
+        }
+    }
+}
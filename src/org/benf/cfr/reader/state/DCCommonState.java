@@ -2,6 +2,7 @@ package org.benf.cfr.reader.state;
 
 import org.benf.cfr.reader.apiunreleased.ClassFileSource2;
 import org.benf.cfr.reader.apiunreleased.JarContent;
+import org.benf.cfr.reader.bytecode.PassInstrumentation;
 import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
 import org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
@@ -11,6 +12,7 @@ import org.benf.cfr.reader.mapping.NullMapping;
 import org.benf.cfr.reader.mapping.ObfuscationMapping;
 import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.CannotLoadClassException;
+import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.DecompilerComment;
 import org.benf.cfr.reader.util.MiscConstants;
 import org.benf.cfr.reader.util.bytestream.BaseByteData;
@@ -19,15 +21,23 @@ import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
 import org.benf.cfr.reader.util.collections.SetFactory;
 import org.benf.cfr.reader.util.functors.BinaryFunction;
+import org.benf.cfr.reader.util.functors.Predicate;
 import org.benf.cfr.reader.util.functors.UnaryFunction;
 import org.benf.cfr.reader.util.getopt.Options;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 
 public class DCCommonState {
@@ -35,40 +45,49 @@ public class DCCommonState {
     private final ClassCache classCache;
     private final ClassFileSource2 classFileSource;
     private final Options options;
-    private final Map<String, ClassFile> classFileCache;
+    private final UnaryFunction<String, ClassFile> classFileLoader;
+    private final ConcurrentMap<String, ClassFileLoad> classFileCache = new ConcurrentHashMap<String, ClassFileLoad>();
     private Set<JavaTypeInstance> versionCollisions;
     private transient LinkedHashSet<String> couldNotLoadClasses = new LinkedHashSet<String>();
     private final ObfuscationMapping obfuscationMapping;
     private final OverloadMethodSetCache overloadMethodSetCache;
+    private final DecompilationCache decompilationCache;
+    private PassInstrumentation passInstrumentation;
+    private final AnalysisCounters analysisCounters;
 
     public DCCommonState(Options options, ClassFileSource2 classFileSource) {
         this.options = options;
         this.classFileSource = classFileSource;
         this.classCache = new ClassCache(this);
-        this.classFileCache = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, ClassFile>() {
+        this.classFileLoader = new UnaryFunction<String, ClassFile>() {
             @Override
             public ClassFile invoke(String arg) {
                 return loadClassFileAtPath(arg);
             }
-        });
+        };
         this.versionCollisions = SetFactory.newSet();
         this.obfuscationMapping = NullMapping.INSTANCE;
         this.overloadMethodSetCache = new OverloadMethodSetCache();
+        this.decompilationCache = DecompilationCache.create(options);
+        this.analysisCounters = new AnalysisCounters();
     }
 
     public DCCommonState(DCCommonState dcCommonState, final BinaryFunction<String, DCCommonState, ClassFile> cacheAccess) {
         this.options = dcCommonState.options;
         this.classFileSource = dcCommonState.classFileSource;
         this.classCache = new ClassCache(this);
-        this.classFileCache = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, ClassFile>() {
+        this.classFileLoader = new UnaryFunction<String, ClassFile>() {
             @Override
             public ClassFile invoke(String arg) {
                 return cacheAccess.invoke(arg, DCCommonState.this);
             }
-        });
+        };
         this.versionCollisions = dcCommonState.versionCollisions;
         this.obfuscationMapping = dcCommonState.obfuscationMapping;
         this.overloadMethodSetCache = dcCommonState.overloadMethodSetCache;
+        this.decompilationCache = dcCommonState.decompilationCache;
+        this.passInstrumentation = dcCommonState.passInstrumentation;
+        this.analysisCounters = dcCommonState.analysisCounters;
     }
 
     // TODO : If we have any more of these, refactor to a builder!
@@ -76,15 +95,18 @@ public class DCCommonState {
         this.options = dcCommonState.options;
         this.classFileSource = dcCommonState.classFileSource;
         this.classCache = new ClassCache(this);
-        this.classFileCache = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, ClassFile>() {
+        this.classFileLoader = new UnaryFunction<String, ClassFile>() {
             @Override
             public ClassFile invoke(String arg) {
                 return loadClassFileAtPath(arg);
             }
-        });
+        };
         this.versionCollisions = dcCommonState.versionCollisions;
         this.obfuscationMapping = mapping;
         this.overloadMethodSetCache = dcCommonState.overloadMethodSetCache;
+        this.decompilationCache = dcCommonState.decompilationCache;
+        this.passInstrumentation = dcCommonState.passInstrumentation;
+        this.analysisCounters = dcCommonState.analysisCounters;
     }
 
     public void setCollisions(Set<JavaTypeInstance> versionCollisions) {
@@ -108,19 +130,65 @@ public class DCCommonState {
         return couldNotLoadClasses;
     }
 
+    /*
+     * Null if not instrumenting.
+     */
+    public PassInstrumentation getPassInstrumentation() {
+        return passInstrumentation;
+    }
+
+    public void setPassInstrumentation(PassInstrumentation passInstrumentation) {
+        this.passInstrumentation = passInstrumentation;
+    }
+
+    public AnalysisCounters getAnalysisCounters() {
+        return analysisCounters;
+    }
+
+    /*
+     * Null if not caching output.
+     */
+    public DecompilationCache getDecompilationCache() {
+        return decompilationCache;
+    }
+
+    /*
+     * Raw bytes of a class, as opposed to the parsed result.
+     */
+    public byte[] getClassFileBytes(String path) throws IOException {
+        return classFileSource.getClassFileContent(path).getFirst();
+    }
+
     public ClassFile loadClassFileAtPath(final String path) {
+        // Loaded class files are shared, so don't number what they hold in the scope of whoever asked for them.
+        AnalysisCounters.IdScope previous = analysisCounters.newIdScope().bind();
         try {
+            if (classFileSource instanceof ByteDataClassFileSource) {
+                Pair<ByteData, String> content = ((ByteDataClassFileSource) classFileSource).getClassFileData(path);
+                return new ClassFile(content.getFirst(), content.getSecond(), this);
+            }
             Pair<byte[], String> content = classFileSource.getClassFileContent(path);
             ByteData data = new BaseByteData(content.getFirst());
             return new ClassFile(data, content.getSecond(), this);
         } catch (Exception e) {
-            couldNotLoadClasses.add(path);
+            synchronized (couldNotLoadClasses) {
+                couldNotLoadClasses.add(path);
+            }
             throw new CannotLoadClassException(path, e);
+        } finally {
+            AnalysisCounters.IdScope.restore(previous);
         }
     }
 
+    /*
+     * Null if typeName wasn't renamed to avoid a collision.
+     */
+    public String getOriginalTypeName(String typeName) {
+        return classCache.getOriginalName(typeName);
+    }
+
     public DecompilerComment renamedTypeComment(String typeName) {
-        String originalName = classCache.getOriginalName(typeName);
+        String originalName = getOriginalTypeName(typeName);
         if (originalName != null) {
             return new DecompilerComment("Renamed from " + originalName);
         }
@@ -175,8 +243,75 @@ public class DCCommonState {
         return baseRes;
     }
 
+    /*
+     * Class files may be requested from several analysis threads at once (see option 'threads').
+     * The first thread to ask for a path loads it, outside any lock - anyone else asking for the same
+     * path meanwhile waits for that load, so a given path is only ever loaded once.  Failures are
+     * remembered, just like successes.
+     */
     public ClassFile getClassFile(String path) throws CannotLoadClassException {
-        return classFileCache.get(path);
+        ClassFileLoad load = classFileCache.get(path);
+        if (load == null) {
+            ClassFileLoad mine = new ClassFileLoad(path);
+            load = classFileCache.putIfAbsent(path, mine);
+            if (load == null) {
+                load = mine;
+                mine.run();
+            }
+        }
+        if (load.loader == Thread.currentThread() && !load.isDone()) {
+            // Asked for again while constructing it - can't wait on ourselves, so just load it.
+            return classFileLoader.invoke(path);
+        }
+        return load.getClassFile();
+    }
+
+    private class ClassFileLoad extends FutureTask<ClassFile> {
+        private final Thread loader = Thread.currentThread();
+
+        private ClassFileLoad(final String path) {
+            super(new Callable<ClassFile>() {
+                @Override
+                public ClassFile call() {
+                    return classFileLoader.invoke(path);
+                }
+            });
+        }
+
+        /*
+         * Only if it's finished, and worked.
+         */
+        private ClassFile getLoadedOrNull() {
+            if (!isDone()) return null;
+            try {
+                return get();
+            } catch (InterruptedException e) {
+                return null;
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        private ClassFile getClassFile() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return get();
+                    } catch (InterruptedException e) {
+                        // Someone else's load - we can't leave without it, so carry on waiting.
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                        if (cause instanceof Error) throw (Error) cause;
+                        throw new ConfusedCFRException(e);
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
     }
 
     public JavaRefTypeInstance getClassTypeOrNull(String path) {
@@ -189,9 +324,37 @@ public class DCCommonState {
     }
 
     public ClassFile getClassFile(JavaTypeInstance classInfo) throws CannotLoadClassException {
-        String path = classInfo.getRawName();
-        path = ClassNameUtils.convertToPath(path) + ".class";
-        return getClassFile(path);
+        return getClassFile(getClassFilePath(classInfo));
+    }
+
+    public static String getClassFilePath(JavaTypeInstance classInfo) {
+        return ClassNameUtils.convertToPath(classInfo.getRawName()) + ".class";
+    }
+
+    /*
+     * Forget loaded class files, other than those we're told to keep - anything which is asked for again
+     * will be reloaded.  Overload information refers to class files, so goes too, as does anything the
+     * (canonical, so long lived) type instances have cached from them.
+     *
+     * Returns the number evicted.
+     */
+    public int evictClassFiles(Predicate<String> keep) {
+        int evicted = 0;
+        Iterator<Map.Entry<String, ClassFileLoad>> iterator = classFileCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ClassFileLoad> entry = iterator.next();
+            if (keep.test(entry.getKey())) continue;
+            iterator.remove();
+            evicted++;
+            ClassFile classFile = entry.getValue().getLoadedOrNull();
+            if (classFile == null) continue;
+            JavaTypeInstance type = classFile.getClassType();
+            if (type instanceof JavaRefTypeInstance) {
+                ((JavaRefTypeInstance) type).forgetBindingSupers();
+            }
+        }
+        overloadMethodSetCache.clear();
+        return evicted;
     }
 
     public ClassFile getClassFileOrNull(JavaTypeInstance classInfo) {
@@ -0,0 +1,256 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.util.CfrVersionInfo;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.SetFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.getopt.PermittedOptionProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Persistent cache of decompiled output, so that re-running over (mostly) the same classes is cheap.
+ *
+ * Entries are keyed on a digest of the CFR version, the options which could affect output (with the
+ * size and modification time of any obfuscation mapping file), and the bytes of the class and its inner
+ * classes.  We don't consider anything else on the classpath - if that changes in a way which matters,
+ * the cache directory should be cleared.
+ *
+ * This is strictly best effort - if we can't read or write an entry, we just analyse as normal.
+ */
+public class DecompilationCache {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String SUFFIX = ".java";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /*
+     * Options which only affect where output goes, or how quickly we get there.
+     */
+    private static final Set<String> IGNORED_OPTIONS = SetFactory.newSet(
+            OptionsImpl.OUTPUT_DIR.getName(),
+            OptionsImpl.OUTPUT_PATH.getName(),
+            OptionsImpl.CLOBBER_FILES.getName(),
+            OptionsImpl.SILENT.getName(),
+            OptionsImpl.THREADS.getName(),
+            OptionsImpl.MAX_OPEN_JARS.getName(),
+            OptionsImpl.MEMORY_MAP.getName(),
+            OptionsImpl.PARALLEL_RECOVERY.getName(),
+            OptionsImpl.CACHE_DIR.getName(),
+            OptionsImpl.CACHE_SIZE.getName(),
+            OptionsImpl.DAEMON_PORT.getName(),
+            OptionsImpl.DAEMON_TOKEN_FILE.getName(),
+            OptionsImpl.CLASS_PATH_INDEX.getName(),
+            OptionsImpl.MEMORY_BUDGET.getName(),
+            OptionsImpl.LOCALITY_SCHEDULE.getName(),
+            OptionsImpl.INSTRUMENT_PASSES.getName(),
+            OptionsImpl.PASS_REPORT.getName()
+    );
+
+    private final File dir;
+    private final long maxBytes;
+    private final byte[] settings;
+    // Lazily calculated, as we don't need it unless we add something.
+    private long totalBytes = -1;
+
+    private DecompilationCache(File dir, long maxBytes, byte[] settings) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.settings = settings;
+    }
+
+    /*
+     * Returns null if caching has not been requested.
+     */
+    static DecompilationCache create(Options options) {
+        String dirName = options.getOption(OptionsImpl.CACHE_DIR);
+        if (dirName == null) return null;
+        File dir = new File(dirName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Couldn't create dir: " + dir);
+        }
+        long maxBytes = options.getOption(OptionsImpl.CACHE_SIZE) * 1024L * 1024L;
+        return new DecompilationCache(dir, maxBytes, getSettings(options).getBytes(UTF8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String getSettings(Options options) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(CfrVersionInfo.VERSION_INFO).append('\n');
+        for (PermittedOptionProvider.ArgumentParam<?, ?> option : OptionsImpl.getFactory().getArguments()) {
+            if (IGNORED_OPTIONS.contains(option.getName())) continue;
+            if (!options.optionIsSet(option)) continue;
+            Object value = options.getOption((PermittedOptionProvider.ArgumentParam<Object, Object>) option, null);
+            sb.append(option.getName()).append('=').append(value).append('\n');
+            // The mapping can be edited in place - we'd replay output renamed with the old one.
+            if (option == OptionsImpl.OBFUSCATION_PATH && value != null) {
+                File mappingFile = new File((String) value);
+                sb.append("mapping=").append(mappingFile.length()).append(',').append(mappingFile.lastModified()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Returns null if we can't work out a key (eg can't re-read the class) - in which case, don't cache.
+     */
+    public String getKey(ClassFile classFile, DCCommonState state) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(settings);
+            for (JavaTypeInstance type : classFile.getAllClassTypes()) {
+                ClassFile typeClassFile = state.getClassFile(type);
+                byte[] content = state.getClassFileBytes(typeClassFile.getUsePath());
+                digest.update(typeClassFile.getUsePath().getBytes(UTF8));
+                digest.update(content);
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private File getEntryFile(String key) {
+        return new File(new File(dir, key.substring(0, 2)), key.substring(2) + SUFFIX);
+    }
+
+    /*
+     * Returns null on a miss.
+     */
+    public synchronized String get(String key) {
+        File file = getEntryFile(key);
+        if (!file.isFile()) return null;
+        try {
+            String res = new String(readFully(file), UTF8);
+            // Note use, so least recently used entries are the first to go.
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            return res;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, String content) {
+        File file = getEntryFile(key);
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) return;
+        byte[] bytes = content.getBytes(UTF8);
+        File tmp = new File(parent, file.getName() + TMP_SUFFIX);
+        try {
+            OutputStream os = new FileOutputStream(tmp);
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+            long previous = file.length();
+            if (file.exists() && !file.delete()) return;
+            if (!tmp.renameTo(file)) return;
+            if (totalBytes < 0) {
+                totalBytes = getEntries().totalBytes;
+            } else {
+                totalBytes += bytes.length - previous;
+            }
+        } catch (IOException e) {
+            return;
+        } finally {
+            if (tmp.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+            }
+        }
+        if (totalBytes > maxBytes) {
+            evict();
+        }
+    }
+
+    /*
+     * Remove least recently used entries until we're comfortably under the limit, so we don't
+     * have to do this on every subsequent put.
+     */
+    private void evict() {
+        Entries entries = getEntries();
+        totalBytes = entries.totalBytes;
+        long target = maxBytes - maxBytes / 10;
+        Collections.sort(entries.files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long l1 = o1.lastModified();
+                long l2 = o2.lastModified();
+                return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+        for (File file : entries.files) {
+            if (totalBytes <= target) break;
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    private Entries getEntries() {
+        Entries entries = new Entries();
+        File[] subDirs = dir.listFiles();
+        if (subDirs == null) return entries;
+        for (File subDir : subDirs) {
+            File[] files = subDir.listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                if (!file.getName().endsWith(SUFFIX)) continue;
+                entries.files.add(file);
+                entries.totalBytes += file.length();
+            }
+        }
+        return entries;
+    }
+
+    private static class Entries {
+        private final List<File> files = ListFactory.newList();
+        private long totalBytes;
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                baos.write(buffer, 0, read);
+            }
+            return baos.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.bytecode.analysis.types.RawJavaType;
+import org.benf.cfr.reader.util.collections.ListFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The same descriptors ("(Ljava/lang/String;I)V", "Ljava/lang/Object;"...) turn up over and over again,
+ * across every class we load - there's no need to re-tokenise them each time.
+ *
+ * We only remember erased types - ie no generics or type variables, as those depend on where they're
+ * used.  Type instances are those of the owning ClassCache, so this lives (and dies) with it.
+ *
+ * Bounded only by refusing new entries once full - by then, the common descriptors are all in.
+ */
+public class DescriptorCache {
+    private static final int MAX_ENTRIES = 1 << 16;
+
+    private final ConcurrentMap<String, MethodDescriptor> methodDescriptors = new ConcurrentHashMap<String, MethodDescriptor>();
+    private final ConcurrentMap<String, JavaTypeInstance> types = new ConcurrentHashMap<String, JavaTypeInstance>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    DescriptorCache() {
+    }
+
+    public static class MethodDescriptor {
+        private final List<JavaTypeInstance> args;
+        private final JavaTypeInstance result;
+
+        private MethodDescriptor(List<JavaTypeInstance> args, JavaTypeInstance result) {
+            this.args = args;
+            this.result = result;
+        }
+
+        /*
+         * Shared, and so immutable - copy before use if it's going to be changed.
+         */
+        public List<JavaTypeInstance> getArgs() {
+            return args;
+        }
+
+        public JavaTypeInstance getResult() {
+            return result;
+        }
+    }
+
+    public MethodDescriptor getMethodDescriptor(String descriptor) {
+        return count(methodDescriptors.get(descriptor));
+    }
+
+    public void putMethodDescriptor(String descriptor, List<JavaTypeInstance> args, JavaTypeInstance result) {
+        if (methodDescriptors.size() >= MAX_ENTRIES) return;
+        if (!isErased(result)) return;
+        for (JavaTypeInstance arg : args) {
+            if (!isErased(arg)) return;
+        }
+        methodDescriptors.putIfAbsent(descriptor, new MethodDescriptor(Collections.unmodifiableList(ListFactory.newList(args)), result));
+    }
+
+    public JavaTypeInstance getType(String descriptor) {
+        return count(types.get(descriptor));
+    }
+
+    public void putType(String descriptor, JavaTypeInstance type) {
+        if (types.size() >= MAX_ENTRIES) return;
+        if (!isErased(type)) return;
+        types.putIfAbsent(descriptor, type);
+    }
+
+    private <T> T count(T res) {
+        if (res == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return res;
+    }
+
+    private static boolean isErased(JavaTypeInstance type) {
+        JavaTypeInstance stripped = type.getArrayStrippedType();
+        return stripped instanceof RawJavaType || stripped.getClass() == JavaRefTypeInstance.class;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "DescriptorCache{hits=" + getHits() + ", misses=" + getMisses() + ", entries=" + (methodDescriptors.size() + types.size()) + "}";
+    }
+}
@@ -0,0 +1,89 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+import org.benf.cfr.reader.util.bytestream.BufferBackedByteData;
+import org.benf.cfr.reader.util.bytestream.ByteData;
+import org.benf.cfr.reader.util.collections.MapFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/*
+ * Class file source which serves classes STORED (uncompressed) in jars, and large loose class files, as views
+ * onto memory mapped files rather than as copied byte arrays.  Anything else (deflated entries, JRE classes)
+ * is read exactly as ClassFileSourceImpl would.
+ *
+ * A jar is mapped once, however many classes we take from it.  A loose class file would get a mapping of
+ * its own - at least a page, plus the cost of setting it up and of the address space it holds on to - which
+ * is more than just reading it, unless it's big.
+ *
+ * Mappings are retained for as long as class files refer to them - there's no portable way to unmap.
+ */
+public class MappedClassFileSource extends ClassFileSourceImpl implements ByteDataClassFileSource {
+    private static final long MIN_MAPPED_FILE = 64 * 1024;
+
+    private final Map<String, MappedJar> mappedJars = MapFactory.newMap();
+
+    public MappedClassFileSource(Options options) {
+        super(options);
+    }
+
+    @Override
+    public Pair<ByteData, String> getClassFileData(String inputPath) throws IOException {
+        ClassFileLocation location = locate(inputPath);
+        ByteBuffer content = null;
+        if (location.file != null) {
+            content = mapFile(location.file);
+        } else if (location.jarFile != null) {
+            content = getMappedJar(location.jarFile).getStoredEntry(location.jarEntryName);
+        }
+        if (content == null) {
+            return Pair.<ByteData, String>make(new BaseByteData(getContent(location, inputPath)), inputPath);
+        }
+        return Pair.<ByteData, String>make(new BufferBackedByteData(content), inputPath);
+    }
+
+    /*
+     * Null if it's not worth mapping.
+     */
+    private static ByteBuffer mapFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < MIN_MAPPED_FILE) return null;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private MappedJar getMappedJar(File jarFile) throws IOException {
+        String key = jarFile.getAbsolutePath();
+        synchronized (mappedJars) {
+            MappedJar mappedJar = mappedJars.get(key);
+            if (mappedJar == null) {
+                mappedJar = MappedJar.open(jarFile);
+                mappedJars.put(key, mappedJar);
+            }
+            return mappedJar;
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        synchronized (mappedJars) {
+            for (MappedJar mappedJar : mappedJars.values()) {
+                mappedJar.close();
+            }
+            mappedJars.clear();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.util.collections.MapFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/*
+ * Just enough of a zip reader to find the class files which are STORED in a jar, and hand them out as
+ * slices of a memory mapping.  java.util.zip won't tell us where an entry's data lives, so we have to
+ * read the central directory ourselves.
+ *
+ * Jars up to 2G are mapped once, in full.  Past that, a single mapping can't cover the file, so each
+ * entry is mapped individually.
+ *
+ * Anything we don't understand just means the entry isn't found here - callers fall back to ZipFile.
+ */
+class MappedJar {
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int METHOD_STORED = 0;
+    private static final int LOCAL_HEADER_LEN = 30;
+    private static final int CENTRAL_HEADER_LEN = 46;
+    private static final int END_LEN = 22;
+    private static final int ZIP64_END_LEN = 56;
+    private static final int ZIP64_LOCATOR_LEN = 20;
+    private static final long U4_MAX = 0xffffffffL;
+    private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer whole;
+    private final Map<String, StoredEntry> storedEntries = MapFactory.newMap();
+
+    private MappedJar(RandomAccessFile file, FileChannel channel, ByteBuffer whole) {
+        this.file = file;
+        this.channel = channel;
+        this.whole = whole;
+    }
+
+    static MappedJar open(File jarFile) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(jarFile, "r");
+        MappedJar res;
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size <= Integer.MAX_VALUE) {
+                res = new MappedJar(null, null, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                raf.close();
+            } else {
+                res = new MappedJar(raf, channel, null);
+            }
+            try {
+                res.readCentralDirectory(size);
+            } catch (IOException e) {
+                res.storedEntries.clear();
+            } catch (RuntimeException e) {
+                res.storedEntries.clear();
+            }
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        return res;
+    }
+
+    private ByteBuffer region(long offset, int length) throws IOException {
+        ByteBuffer res;
+        if (whole != null) {
+            ByteBuffer view = whole.duplicate();
+            view.limit((int) (offset + length));
+            view.position((int) offset);
+            res = view.slice();
+        } else {
+            res = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        return res.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int u2(ByteBuffer buffer, int idx) {
+        return buffer.getShort(idx) & 0xffff;
+    }
+
+    private static long u4(ByteBuffer buffer, int idx) {
+        return buffer.getInt(idx) & U4_MAX;
+    }
+
+    private void readCentralDirectory(long size) throws IOException {
+        int tailLen = (int) Math.min(size, 0xffff + END_LEN);
+        long tailStart = size - tailLen;
+        ByteBuffer tail = region(tailStart, tailLen);
+        int end = -1;
+        for (int idx = tailLen - END_LEN; idx >= 0; --idx) {
+            if (tail.getInt(idx) == END_SIG) {
+                end = idx;
+                break;
+            }
+        }
+        if (end == -1) throw new IOException("No end of central directory");
+
+        long count = u2(tail, end + 10);
+        long directorySize = u4(tail, end + 12);
+        long directoryOffset = u4(tail, end + 16);
+        if (count == 0xffff || directorySize == U4_MAX || directoryOffset == U4_MAX) {
+            // Zip64 - the real values are in the zip64 end record, found via the locator just before us.
+            ByteBuffer locator = region(tailStart + end - ZIP64_LOCATOR_LEN, ZIP64_LOCATOR_LEN);
+            if (locator.getInt(0) != ZIP64_LOCATOR_SIG) throw new IOException("Bad zip64 locator");
+            ByteBuffer zip64End = region(locator.getLong(8), ZIP64_END_LEN);
+            if (zip64End.getInt(0) != ZIP64_END_SIG) throw new IOException("Bad zip64 end record");
+            count = zip64End.getLong(32);
+            directorySize = zip64End.getLong(40);
+            directoryOffset = zip64End.getLong(48);
+        }
+        if (directorySize > Integer.MAX_VALUE) throw new IOException("Central directory too large");
+
+        ByteBuffer directory = region(directoryOffset, (int) directorySize);
+        int pos = 0;
+        for (long x = 0; x < count; ++x) {
+            if (directory.getInt(pos) != CENTRAL_HEADER_SIG) throw new IOException("Bad central directory entry");
+            int method = u2(directory, pos + 10);
+            long compressedSize = u4(directory, pos + 20);
+            long size64 = u4(directory, pos + 24);
+            int nameLen = u2(directory, pos + 28);
+            int extraLen = u2(directory, pos + 30);
+            int commentLen = u2(directory, pos + 32);
+            long localHeaderOffset = u4(directory, pos + 42);
+            int nameStart = pos + CENTRAL_HEADER_LEN;
+            byte[] nameBytes = new byte[nameLen];
+            ByteBuffer nameView = directory.duplicate();
+            nameView.position(nameStart);
+            nameView.get(nameBytes);
+            String name = new String(nameBytes, UTF8_CHARSET);
+
+            if (method == METHOD_STORED && name.endsWith(".class")) {
+                if (size64 == U4_MAX || compressedSize == U4_MAX || localHeaderOffset == U4_MAX) {
+                    int extraPos = nameStart + nameLen;
+                    int extraEnd = extraPos + extraLen;
+                    while (extraPos + 4 <= extraEnd) {
+                        int id = u2(directory, extraPos);
+                        int len = u2(directory, extraPos + 2);
+                        if (id == ZIP64_EXTRA_ID) {
+                            int fieldPos = extraPos + 4;
+                            if (size64 == U4_MAX) {
+                                size64 = directory.getLong(fieldPos);
+                                fieldPos += 8;
+                            }
+                            if (compressedSize == U4_MAX) {
+                                fieldPos += 8;
+                            }
+                            if (localHeaderOffset == U4_MAX) {
+                                localHeaderOffset = directory.getLong(fieldPos);
+                            }
+                            break;
+                        }
+                        extraPos += 4 + len;
+                    }
+                }
+                if (size64 <= Integer.MAX_VALUE) {
+                    storedEntries.put(name, new StoredEntry(localHeaderOffset, (int) size64));
+                }
+            }
+            pos = nameStart + nameLen + extraLen + commentLen;
+        }
+    }
+
+    /*
+     * Content of a STORED entry, or null if name isn't one.
+     */
+    ByteBuffer getStoredEntry(String name) throws IOException {
+        StoredEntry entry = storedEntries.get(name);
+        if (entry == null) return null;
+        ByteBuffer header = region(entry.localHeaderOffset, LOCAL_HEADER_LEN);
+        if (header.getInt(0) != LOCAL_HEADER_SIG) return null;
+        long dataOffset = entry.localHeaderOffset + LOCAL_HEADER_LEN + u2(header, 26) + u2(header, 28);
+        return region(dataOffset, entry.size);
+    }
+
+    void close() {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException ignore) {
+            // Nothing useful we can do here.
+        }
+    }
+
+    private static class StoredEntry {
+        private final long localHeaderOffset;
+        private final int size;
+
+        private StoredEntry(long localHeaderOffset, int size) {
+            this.localHeaderOffset = localHeaderOffset;
+            this.size = size;
+        }
+    }
+}
@@ -18,11 +18,15 @@ public class OverloadMethodSetCache {
         }
     });
 
-    public OverloadMethodSet get(ClassFile classFile, MethodPrototype methodPrototype) {
+    public synchronized OverloadMethodSet get(ClassFile classFile, MethodPrototype methodPrototype) {
         return content.get(classFile).get(methodPrototype);
     }
 
-    public void set(ClassFile classFile, MethodPrototype methodPrototype, OverloadMethodSet overloadMethodSet) {
+    public synchronized void set(ClassFile classFile, MethodPrototype methodPrototype, OverloadMethodSet overloadMethodSet) {
         content.get(classFile).put(methodPrototype, overloadMethodSet);
     }
+
+    public synchronized void clear() {
+        content.clear();
+    }
 }
@@ -179,6 +179,10 @@ public class TypeUsageCollectingDumper implements Dumper {
     public Dumper dump(JavaTypeInstance javaTypeInstance, TypeContext typeContext) {
         if (javaTypeInstance instanceof JavaRefTypeInstance) {
             refTypeInstanceSet.add((JavaRefTypeInstance)javaTypeInstance);
+            /*
+             * A plain ref type doesn't contain any other types, so there's no point rendering its name.
+             */
+            return this;
         }
         javaTypeInstance.dumpInto(this, getTypeUsageInformation(), typeContext);
         return this;
@@ -0,0 +1,92 @@
+package org.benf.cfr.reader.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+/*
+ * Opening a ZipFile means parsing its central directory, which for a big jar costs far more than reading
+ * the single entry we're after.  So rather than open / close per class, we keep handles open for the
+ * duration of an analysis, closing the least recently used once we have more than maxOpen.
+ *
+ * Handles are reference counted - if a handle is evicted while another thread is reading from it,
+ * it's closed when that reader releases it.
+ */
+class ZipFileCache {
+    private final int maxOpen;
+    private final Map<String, Handle> handles = new LinkedHashMap<String, Handle>(16, 0.75f, true);
+
+    ZipFileCache(int maxOpen) {
+        this.maxOpen = Math.max(1, maxOpen);
+    }
+
+    synchronized Handle acquire(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        Handle handle = handles.get(key);
+        if (handle == null) {
+            handle = new Handle(new ZipFile(file, ZipFile.OPEN_READ));
+            handles.put(key, handle);
+            evict();
+        }
+        handle.users++;
+        return handle;
+    }
+
+    synchronized void release(Handle handle) {
+        handle.users--;
+        if (handle.evicted && handle.users == 0) {
+            handle.close();
+        }
+    }
+
+    private void evict() {
+        Iterator<Handle> iterator = handles.values().iterator();
+        while (handles.size() > maxOpen && iterator.hasNext()) {
+            Handle handle = iterator.next();
+            iterator.remove();
+            retire(handle);
+        }
+    }
+
+    private void retire(Handle handle) {
+        handle.evicted = true;
+        if (handle.users == 0) {
+            handle.close();
+        }
+    }
+
+    /*
+     * Close everything not in use.  The cache remains usable - handles will be reopened on demand.
+     */
+    synchronized void close() {
+        for (Handle handle : handles.values()) {
+            retire(handle);
+        }
+        handles.clear();
+    }
+
+    static class Handle {
+        private final ZipFile zipFile;
+        private int users;
+        private boolean evicted;
+
+        private Handle(ZipFile zipFile) {
+            this.zipFile = zipFile;
+        }
+
+        ZipFile getZipFile() {
+            return zipFile;
+        }
+
+        private void close() {
+            try {
+                zipFile.close();
+            } catch (IOException ignore) {
+                // Nothing useful we can do here.
+            }
+        }
+    }
+}
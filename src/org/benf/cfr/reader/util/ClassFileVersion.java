@@ -60,6 +60,23 @@ public class ClassFileVersion {
         return byName;
     }
 
+    /*
+     * Equal if major and minor match, so that (eg) decoded options can be memoised per version - there's a
+     * new one of these for each class file.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof ClassFileVersion)) return false;
+        ClassFileVersion other = (ClassFileVersion) o;
+        return major == other.major && minor == other.minor;
+    }
+
+    @Override
+    public int hashCode() {
+        return major * 31 + minor;
+    }
+
     @Override
     public String toString() {
         return "" + major + "." + minor + (name == null ? "" : (" (Java " + name + ")")) + (minor == 65535 ? " preview" : "");
@@ -0,0 +1,18 @@
+package org.benf.cfr.reader.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Worker threads should never keep the JVM alive - if the caller has finished with us, so have they.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+    private final ThreadFactory inner = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = inner.newThread(r);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
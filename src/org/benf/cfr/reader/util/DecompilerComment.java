@@ -40,6 +40,7 @@ public class DecompilerComment implements Dumpable {
     public static final DecompilerComment IMPOSSIBLE_LOOP_WITH_FIRST = new DecompilerComment("Handled impossible loop by adding 'first' condition", false);
     public static final DecompilerComment IMPOSSIBLE_LOOP_WITH_COPY = new DecompilerComment("Handled impossible loop by duplicating code", false);
     public static final DecompilerComment DYNAMIC_SIGNATURE_MISMATCH = new DecompilerComment("Invoke dynamic uses mismatched descriptor", false);
+    public static final DecompilerComment ANALYSIS_BUDGET_EXCEEDED = new DecompilerComment("Gave up on analysis - exceeded time/size limit.  See --" + OptionsImpl.METHOD_TIME_LIMIT.getName() + ", --" + OptionsImpl.METHOD_SIZE_LIMIT.getName() + ", --" + OptionsImpl.CLASS_TIME_LIMIT.getName() + ", --" + OptionsImpl.CLASS_SIZE_LIMIT.getName(), true);
 
     private final String comment;
     private final String summaryMessage;
@@ -2,83 +2,90 @@ package org.benf.cfr.reader.util.bytestream;
 
 import org.benf.cfr.reader.util.ConfusedCFRException;
 
-import java.io.DataInputStream;
-
+/*
+ * Big endian reads straight out of the backing array - these are called for every constant pool entry,
+ * attribute and instruction, so it's worth not allocating.
+ */
 public abstract class AbstractBackedByteData implements ByteData {
+    final byte[] data;
+
+    AbstractBackedByteData(byte[] data) {
+        this.data = data;
+    }
 
-    abstract DataInputStream rawDataAsStream(int offset, int length);
+    /*
+     * Translate an offset relative to this view into an index into data.
+     */
+    abstract int getRealOffset(long o);
+
+    private int getCheckedOffset(long o, int length) throws ConfusedCFRException {
+        int idx = getRealOffset(o);
+        if (idx < 0 || idx > data.length - length) {
+            throw new ConfusedCFRException("Attempt to read " + length + " bytes at " + idx + " of " + data.length);
+        }
+        return idx;
+    }
 
     @Override
     public int getS4At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 4);
-        try {
-            return dis.readInt();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        int idx = getCheckedOffset(o, 4);
+        return ((data[idx] & 0xff) << 24) |
+                ((data[idx + 1] & 0xff) << 16) |
+                ((data[idx + 2] & 0xff) << 8) |
+                (data[idx + 3] & 0xff);
     }
 
     @Override
     public double getDoubleAt(long o) throws ConfusedCFRException {
-        DataInputStream dis = rawDataAsStream((int) o, 8);
-        try {
-            return dis.readDouble();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        return Double.longBitsToDouble(getLongAt(o));
     }
 
     @Override
     public float getFloatAt(long o) throws ConfusedCFRException {
-        DataInputStream dis = rawDataAsStream((int) o, 8);
-        try {
-            return dis.readFloat();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        return Float.intBitsToFloat(getS4At(o));
     }
 
     @Override
     public long getLongAt(long o) throws ConfusedCFRException {
-        DataInputStream dis = rawDataAsStream((int) o, 8);
-        try {
-            return dis.readLong();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        int idx = getCheckedOffset(o, 8);
+        long hi = ((data[idx] & 0xff) << 24) |
+                ((data[idx + 1] & 0xff) << 16) |
+                ((data[idx + 2] & 0xff) << 8) |
+                (data[idx + 3] & 0xff);
+        long lo = ((data[idx + 4] & 0xff) << 24) |
+                ((data[idx + 5] & 0xff) << 16) |
+                ((data[idx + 6] & 0xff) << 8) |
+                (data[idx + 7] & 0xff);
+        return (hi << 32) | (lo & 0xffffffffL);
     }
 
     @Override
     public short getS2At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 2);
-        try {
-            return dis.readShort();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        int idx = getCheckedOffset(o, 2);
+        return (short) (((data[idx] & 0xff) << 8) | (data[idx + 1] & 0xff));
     }
 
     @Override
     public int getU2At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 2);
-        try {
-            return dis.readUnsignedShort();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        int idx = getCheckedOffset(o, 2);
+        return ((data[idx] & 0xff) << 8) | (data[idx + 1] & 0xff);
     }
 
     @Override
     public short getU1At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 1);
-        try {
-            return (short) dis.readUnsignedByte();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        int idx = getCheckedOffset(o, 1);
+        return (short) (data[idx] & 0xff);
+    }
+
+    @Override
+    public byte getS1At(long o) {
+        return data[getRealOffset(o)];
+    }
+
+    @Override
+    public byte[] getBytesAt(int count, long offset) {
+        byte[] res = new byte[count];
+        System.arraycopy(data, getRealOffset(offset), res, 0, count);
+        return res;
     }
 }
@@ -0,0 +1,76 @@
+package org.benf.cfr.reader.util.bytestream;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+
+import java.nio.ByteBuffer;
+
+/*
+ * As AbstractBackedByteData, but over a ByteBuffer, which may be a view onto a memory mapped file.
+ * Only absolute reads are used, so the buffer's position is never disturbed, and views are never copied.
+ */
+public abstract class AbstractBufferBackedByteData implements ByteData {
+    final ByteBuffer data;
+
+    AbstractBufferBackedByteData(ByteBuffer data) {
+        this.data = data;
+    }
+
+    abstract int getRealOffset(long o);
+
+    private int getCheckedOffset(long o, int length) throws ConfusedCFRException {
+        int idx = getRealOffset(o);
+        if (idx < 0 || idx > data.limit() - length) {
+            throw new ConfusedCFRException("Attempt to read " + length + " bytes at " + idx + " of " + data.limit());
+        }
+        return idx;
+    }
+
+    @Override
+    public int getS4At(long o) throws ConfusedCFRException {
+        return data.getInt(getCheckedOffset(o, 4));
+    }
+
+    @Override
+    public double getDoubleAt(long o) throws ConfusedCFRException {
+        return data.getDouble(getCheckedOffset(o, 8));
+    }
+
+    @Override
+    public float getFloatAt(long o) throws ConfusedCFRException {
+        return data.getFloat(getCheckedOffset(o, 4));
+    }
+
+    @Override
+    public long getLongAt(long o) throws ConfusedCFRException {
+        return data.getLong(getCheckedOffset(o, 8));
+    }
+
+    @Override
+    public short getS2At(long o) throws ConfusedCFRException {
+        return data.getShort(getCheckedOffset(o, 2));
+    }
+
+    @Override
+    public int getU2At(long o) throws ConfusedCFRException {
+        return data.getShort(getCheckedOffset(o, 2)) & 0xffff;
+    }
+
+    @Override
+    public short getU1At(long o) throws ConfusedCFRException {
+        return (short) (data.get(getCheckedOffset(o, 1)) & 0xff);
+    }
+
+    @Override
+    public byte getS1At(long o) {
+        return data.get(getRealOffset(o));
+    }
+
+    @Override
+    public byte[] getBytesAt(int count, long offset) {
+        byte[] res = new byte[count];
+        ByteBuffer view = data.duplicate();
+        view.position(getRealOffset(offset));
+        view.get(res);
+        return res;
+    }
+}
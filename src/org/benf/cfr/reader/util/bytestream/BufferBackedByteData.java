@@ -0,0 +1,35 @@
+package org.benf.cfr.reader.util.bytestream;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class BufferBackedByteData extends AbstractBufferBackedByteData {
+    private final int offset;
+
+    /*
+     * Content is read from absolute index 0 of data, big endian, regardless of data's current position or order.
+     */
+    public BufferBackedByteData(ByteBuffer data) {
+        this(data.duplicate().order(ByteOrder.BIG_ENDIAN), 0);
+    }
+
+    BufferBackedByteData(ByteBuffer data, long offset) {
+        super(data);
+        this.offset = (int) offset;
+    }
+
+    @Override
+    int getRealOffset(long o) {
+        return (int) (offset + o);
+    }
+
+    @Override
+    public ByteData getOffsetData(long offset) {
+        return new BufferBackedByteData(data, this.offset + offset);
+    }
+
+    @Override
+    public OffsettingByteData getOffsettingOffsetData(long offset) {
+        return new OffsettingBufferBackedByteData(data, this.offset + offset);
+    }
+}
@@ -0,0 +1,39 @@
+package org.benf.cfr.reader.util.bytestream;
+
+import java.nio.ByteBuffer;
+
+public class OffsettingBufferBackedByteData extends AbstractBufferBackedByteData implements OffsettingByteData {
+    private final int originalOffset;
+    private int mutableOffset;
+
+    OffsettingBufferBackedByteData(ByteBuffer data, long offset) {
+        super(data);
+        this.originalOffset = (int) offset;
+        this.mutableOffset = 0;
+    }
+
+    @Override
+    public void advance(long offset) {
+        mutableOffset += offset;
+    }
+
+    @Override
+    public long getOffset() {
+        return mutableOffset;
+    }
+
+    @Override
+    int getRealOffset(long o) {
+        return (int) (originalOffset + mutableOffset + o);
+    }
+
+    @Override
+    public ByteData getOffsetData(long offset) {
+        return new BufferBackedByteData(data, originalOffset + mutableOffset + offset);
+    }
+
+    @Override
+    public OffsettingByteData getOffsettingOffsetData(long offset) {
+        return new OffsettingBufferBackedByteData(data, originalOffset + mutableOffset + offset);
+    }
+}
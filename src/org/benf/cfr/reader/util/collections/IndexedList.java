@@ -0,0 +1,272 @@
+package org.benf.cfr.reader.util.collections;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/*
+ * A list which can find an element, and insert or remove in the middle, without touching every element.
+ *
+ * Rewriters spend a lot of their time asking "where is this statement?", then inserting next to it - with
+ * an array list, both are linear, and quadratic over a pass on a large method.
+ *
+ * Elements are kept, in order, in chunks of at most MAX_CHUNK.  Inserting or removing only shifts the
+ * chunk concerned (which splits when it gets too big, and takes in its neighbour when it gets too small).
+ * Each chunk knows where it starts; a change moves the start of every later chunk, so those are brought up
+ * to date lazily, from the first which moved, when next needed.
+ *
+ * Once the list has been searched, we also remember which chunk each element is in - so finding one is a
+ * lookup, plus a scan of its chunk.  (Until then, there's nothing to maintain - a list which is only ever
+ * walked costs little more than an ArrayList.)
+ *
+ * Intended for lists without duplicates - if one is found, searches fall back to scanning.
+ */
+public class IndexedList<X> extends AbstractList<X> implements RandomAccess {
+    private static final int MAX_CHUNK = 128;
+    private static final int MIN_CHUNK = MAX_CHUNK / 4;
+
+    private static class Chunk<X> {
+        private final List<X> items;
+        private int start;
+
+        private Chunk(List<X> items) {
+            this.items = items;
+        }
+    }
+
+    private final List<Chunk<X>> chunks = ListFactory.newList();
+    // Null until someone searches.
+    private Map<Object, Chunk<X>> chunkOf;
+    private boolean duplicates;
+    private int size;
+    // Chunks before this know where they start.
+    private int startsValidTo;
+    // Where the last lookup by position landed - access is mostly sequential.
+    private int lastChunk;
+
+    public IndexedList() {
+    }
+
+    public IndexedList(Collection<? extends X> original) {
+        for (X x : original) {
+            add(x);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public X get(int index) {
+        checkIndex(index, size);
+        Chunk<X> chunk = chunks.get(chunkAt(index));
+        return chunk.items.get(index - chunk.start);
+    }
+
+    @Override
+    public X set(int index, X element) {
+        checkIndex(index, size);
+        Chunk<X> chunk = chunks.get(chunkAt(index));
+        X res = chunk.items.set(index - chunk.start, element);
+        if (chunkOf != null) {
+            if (!duplicates) chunkOf.remove(res);
+            note(element, chunk);
+        }
+        return res;
+    }
+
+    @Override
+    public void add(int index, X element) {
+        checkIndex(index, size + 1);
+        int chunkIdx;
+        Chunk<X> chunk;
+        if (index == size) {
+            // Appending - nothing moves, so no need to know where anything starts.
+            chunkIdx = chunks.size() - 1;
+            if (chunkIdx < 0 || chunks.get(chunkIdx).items.size() >= MAX_CHUNK) {
+                chunks.add(new Chunk<X>(ListFactory.<X>newList()));
+                chunkIdx++;
+                moved(chunkIdx);
+            }
+            chunk = chunks.get(chunkIdx);
+            chunk.items.add(element);
+        } else {
+            chunkIdx = chunkAt(index);
+            chunk = chunks.get(chunkIdx);
+            chunk.items.add(index - chunk.start, element);
+        }
+        size++;
+        modCount++;
+        if (chunkOf != null) note(element, chunk);
+        moved(chunkIdx + 1);
+        if (chunk.items.size() > MAX_CHUNK) split(chunkIdx);
+    }
+
+    @Override
+    public X remove(int index) {
+        checkIndex(index, size);
+        int chunkIdx = chunkAt(index);
+        Chunk<X> chunk = chunks.get(chunkIdx);
+        X res = chunk.items.remove(index - chunk.start);
+        size--;
+        modCount++;
+        if (chunkOf != null && !duplicates) chunkOf.remove(res);
+        if (chunk.items.isEmpty()) {
+            chunks.remove(chunkIdx);
+            moved(chunkIdx);
+        } else {
+            moved(chunkIdx + 1);
+            if (chunk.items.size() < MIN_CHUNK) mergeNext(chunkIdx);
+        }
+        return res;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int idx = indexOf(o);
+        if (idx == -1) return false;
+        remove(idx);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+        chunkOf = null;
+        duplicates = false;
+        size = 0;
+        startsValidTo = 0;
+        lastChunk = 0;
+        modCount++;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        Chunk<X> chunk = findChunk(o);
+        if (duplicates) return super.indexOf(o);
+        if (chunk == null) return -1;
+        validateStarts();
+        return chunk.start + chunk.items.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        Chunk<X> chunk = findChunk(o);
+        if (duplicates) return super.lastIndexOf(o);
+        if (chunk == null) return -1;
+        validateStarts();
+        return chunk.start + chunk.items.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        Chunk<X> chunk = findChunk(o);
+        if (duplicates) return super.contains(o);
+        return chunk != null;
+    }
+
+    private Chunk<X> findChunk(Object o) {
+        if (chunkOf == null) {
+            chunkOf = MapFactory.newMap();
+            for (Chunk<X> chunk : chunks) {
+                for (X x : chunk.items) {
+                    note(x, chunk);
+                }
+            }
+        }
+        return chunkOf.get(o);
+    }
+
+    private void note(X x, Chunk<X> chunk) {
+        if (chunkOf.put(x, chunk) != null) duplicates = true;
+    }
+
+    /*
+     * Chunks from chunkIdx on may not start where they think they do.
+     */
+    private void moved(int chunkIdx) {
+        if (chunkIdx < startsValidTo) startsValidTo = chunkIdx;
+    }
+
+    private void validateStarts() {
+        int len = chunks.size();
+        if (startsValidTo >= len) return;
+        int start = 0;
+        if (startsValidTo > 0) {
+            Chunk<X> prev = chunks.get(startsValidTo - 1);
+            start = prev.start + prev.items.size();
+        }
+        for (int x = startsValidTo; x < len; ++x) {
+            Chunk<X> chunk = chunks.get(x);
+            chunk.start = start;
+            start += chunk.items.size();
+        }
+        startsValidTo = len;
+    }
+
+    /*
+     * The chunk holding index, which must be in range.
+     */
+    private int chunkAt(int index) {
+        validateStarts();
+        int len = chunks.size();
+        for (int x = lastChunk; x < len && x <= lastChunk + 1; ++x) {
+            Chunk<X> chunk = chunks.get(x);
+            if (index >= chunk.start && index < chunk.start + chunk.items.size()) {
+                lastChunk = x;
+                return x;
+            }
+        }
+        int lo = 0;
+        int hi = len - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (chunks.get(mid).start <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        lastChunk = lo;
+        return lo;
+    }
+
+    private void split(int chunkIdx) {
+        List<X> items = chunks.get(chunkIdx).items;
+        List<X> tail = items.subList(items.size() / 2, items.size());
+        Chunk<X> next = new Chunk<X>(ListFactory.newList(tail));
+        tail.clear();
+        chunks.add(chunkIdx + 1, next);
+        moved(chunkIdx + 1);
+        if (chunkOf != null) {
+            for (X x : next.items) {
+                chunkOf.put(x, next);
+            }
+        }
+    }
+
+    private void mergeNext(int chunkIdx) {
+        if (chunkIdx + 1 >= chunks.size()) return;
+        Chunk<X> chunk = chunks.get(chunkIdx);
+        Chunk<X> next = chunks.get(chunkIdx + 1);
+        if (chunk.items.size() + next.items.size() > MAX_CHUNK) return;
+        chunk.items.addAll(next.items);
+        chunks.remove(chunkIdx + 1);
+        moved(chunkIdx + 1);
+        if (chunkOf != null) {
+            for (X x : next.items) {
+                chunkOf.put(x, chunk);
+            }
+        }
+    }
+
+    private void checkIndex(int index, int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.benf.cfr.reader.util.collections;
+
+/*
+ * Shared by the int keyed hash collections.  Tables are a power of 2, at most half full.
+ */
+class IntHashing {
+    static int capacityFor(int expected) {
+        int capacity = 8;
+        while (maxFill(capacity) < expected) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int maxFill(int capacity) {
+        return capacity >> 1;
+    }
+
+    /*
+     * Offsets and slots are small, and often dense or strided - spread them over the table.
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,84 @@
+package org.benf.cfr.reader.util.collections;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+
+/*
+ * int -> int, without boxing either side.  Open addressing with linear probing - nothing is ever
+ * removed, which keeps it simple.
+ */
+public class IntIntMap {
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    public IntIntMap() {
+        this(16);
+    }
+
+    public IntIntMap(int expected) {
+        int capacity = IntHashing.capacityFor(expected);
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    public void put(int key, int value) {
+        int pos = find(key);
+        if (used[pos]) {
+            values[pos] = value;
+            return;
+        }
+        used[pos] = true;
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size > IntHashing.maxFill(keys.length)) rehash();
+    }
+
+    public boolean containsKey(int key) {
+        return used[find(key)];
+    }
+
+    public int get(int key) {
+        int pos = find(key);
+        if (!used[pos]) throw new ConfusedCFRException("No entry for " + key);
+        return values[pos];
+    }
+
+    public int get(int key, int notFound) {
+        int pos = find(key);
+        return used[pos] ? values[pos] : notFound;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Where key is, or the empty slot it would go in.
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int pos = IntHashing.hash(key) & mask;
+        while (used[pos] && keys[pos] != key) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        for (int x = 0; x < oldKeys.length; ++x) {
+            if (!oldUsed[x]) continue;
+            int pos = find(oldKeys[x]);
+            used[pos] = true;
+            keys[pos] = oldKeys[x];
+            values[pos] = oldValues[x];
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.benf.cfr.reader.util.collections;
+
+import java.util.Collection;
+
+/*
+ * A set of ints, without boxing.  Open addressing with linear probing, and no removal.
+ */
+public class IntSet {
+    private int[] keys;
+    private boolean[] used;
+    private int size;
+
+    public IntSet() {
+        this(8);
+    }
+
+    public IntSet(int expected) {
+        int capacity = IntHashing.capacityFor(expected);
+        keys = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    public boolean add(int key) {
+        int pos = find(key);
+        if (used[pos]) return false;
+        used[pos] = true;
+        keys[pos] = key;
+        if (++size > IntHashing.maxFill(keys.length)) rehash();
+        return true;
+    }
+
+    public void addAll(Collection<Integer> other) {
+        for (Integer key : other) {
+            add(key);
+        }
+    }
+
+    public void addAll(IntSet other) {
+        for (int x = 0; x < other.keys.length; ++x) {
+            if (other.used[x]) add(other.keys[x]);
+        }
+    }
+
+    public boolean contains(int key) {
+        return used[find(key)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int pos = IntHashing.hash(key) & mask;
+        while (used[pos] && keys[pos] != key) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        for (int x = 0; x < oldKeys.length; ++x) {
+            if (!oldUsed[x]) continue;
+            int pos = find(oldKeys[x]);
+            used[pos] = true;
+            keys[pos] = oldKeys[x];
+        }
+    }
+}
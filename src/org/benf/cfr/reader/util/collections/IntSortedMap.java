@@ -0,0 +1,119 @@
+package org.benf.cfr.reader.util.collections;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+
+import java.util.Arrays;
+
+/*
+ * int -> int, ordered by key, without boxing - two sorted arrays, searched by bisection.
+ *
+ * Built for tables which are filled (mostly) in key order, such as bytecode offsets as we walk the
+ * instructions - adding at the end is cheap, anything else shifts the entries after it up.  Nothing is
+ * ever removed.
+ */
+public class IntSortedMap {
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntSortedMap() {
+        this(16);
+    }
+
+    public IntSortedMap(int expected) {
+        int capacity = Math.max(expected, 4);
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    public void put(int key, int value) {
+        int pos;
+        if (size == 0 || keys[size - 1] < key) {
+            pos = size;
+        } else {
+            pos = Arrays.binarySearch(keys, 0, size, key);
+            if (pos >= 0) {
+                values[pos] = value;
+                return;
+            }
+            pos = -(pos + 1);
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        if (pos < size) {
+            System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+        }
+        keys[pos] = key;
+        values[pos] = value;
+        size++;
+    }
+
+    public boolean containsKey(int key) {
+        return Arrays.binarySearch(keys, 0, size, key) >= 0;
+    }
+
+    public int get(int key) {
+        int pos = Arrays.binarySearch(keys, 0, size, key);
+        if (pos < 0) throw new ConfusedCFRException("No entry for " + key);
+        return values[pos];
+    }
+
+    public int get(int key, int notFound) {
+        int pos = Arrays.binarySearch(keys, 0, size, key);
+        return pos >= 0 ? values[pos] : notFound;
+    }
+
+    /*
+     * Greatest key strictly less than key, or notFound.
+     */
+    public int lowerKey(int key, int notFound) {
+        int pos = insertionPoint(key) - 1;
+        return pos >= 0 ? keys[pos] : notFound;
+    }
+
+    /*
+     * Greatest key less than or equal to key, or notFound.
+     */
+    public int floorKey(int key, int notFound) {
+        int pos = Arrays.binarySearch(keys, 0, size, key);
+        if (pos >= 0) return key;
+        pos = -(pos + 1) - 1;
+        return pos >= 0 ? keys[pos] : notFound;
+    }
+
+    /*
+     * Least key greater than or equal to key, or notFound.
+     */
+    public int ceilingKey(int key, int notFound) {
+        int pos = insertionPoint(key);
+        return pos < size ? keys[pos] : notFound;
+    }
+
+    /*
+     * Least key strictly greater than key, or notFound.
+     */
+    public int higherKey(int key, int notFound) {
+        int pos = Arrays.binarySearch(keys, 0, size, key);
+        pos = pos >= 0 ? pos + 1 : -(pos + 1);
+        return pos < size ? keys[pos] : notFound;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Index of the first key >= key.
+     */
+    private int insertionPoint(int key) {
+        int pos = Arrays.binarySearch(keys, 0, size, key);
+        return pos >= 0 ? pos : -(pos + 1);
+    }
+}
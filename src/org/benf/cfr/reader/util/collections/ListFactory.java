@@ -25,6 +25,17 @@ public class ListFactory {
         return new ArrayList<X>(size);
     }
 
+    /*
+     * For lists which will be frequently searched - see IndexedList.
+     */
+    public static <X> List<X> newIndexedList() {
+        return new IndexedList<X>();
+    }
+
+    public static <X> List<X> newIndexedList(Collection<X> original) {
+        return new IndexedList<X>(original);
+    }
+
     public static <X> LinkedList<X> newLinkedList() {
         return new LinkedList<X>();
     }
@@ -5,10 +5,14 @@ import org.benf.cfr.reader.util.Troolean;
 
 import java.util.Map;
 
+/*
+ * A few overrides on top of a set of options - one of these is made for every recovery pass, so the
+ * overrides are decoded as they're made, and nothing is allocated until there is one.
+ */
 public class MutableOptions implements Options {
     private final Options delegate;
 
-    private Map<String, String> overrides = MapFactory.newMap();
+    private Map<String, Object> overrides;
 
     public MutableOptions(Options delegate) {
         this.delegate = delegate;
@@ -17,7 +21,7 @@ public class MutableOptions implements Options {
     public boolean override(PermittedOptionProvider.ArgumentParam<Troolean, Void> argument, Troolean value) {
         Troolean originalValue = delegate.getOption(argument);
         if (originalValue == Troolean.NEITHER) {
-            overrides.put(argument.getName(), value.toString());
+            put(argument, value.toString());
             return true;
         }
         return false;
@@ -26,7 +30,7 @@ public class MutableOptions implements Options {
     public boolean override(PermittedOptionProvider.ArgumentParam<Integer, Void> argument, int value) {
         Integer originalValue = delegate.getOption(argument);
         if (originalValue != value) {
-            overrides.put(argument.getName(), Integer.toString(value));
+            put(argument, Integer.toString(value));
             return true;
         }
         return false;
@@ -35,33 +39,57 @@ public class MutableOptions implements Options {
     public boolean override(PermittedOptionProvider.ArgumentParam<Boolean, Void> argument, boolean value) {
         Boolean originalValue = delegate.getOption(argument);
         if (originalValue != value) {
-            overrides.put(argument.getName(), Boolean.toString(value));
+            put(argument, Boolean.toString(value));
             return true;
         }
         return false;
     }
 
+    private void put(PermittedOptionProvider.ArgumentParam<?, Void> argument, String value) {
+        if (overrides == null) overrides = MapFactory.newMap();
+        overrides.put(argument.getName(), argument.getFn().invoke(value, null, this));
+    }
+
+    /*
+     * If nothing was overridden, there's no need for this to be used in place of the original.
+     */
+    public boolean isEmpty() {
+        return overrides == null;
+    }
+
+    /*
+     * Same options underneath, with the same overrides on top?
+     */
+    public boolean sameAs(MutableOptions other) {
+        if (delegate != other.delegate) return false;
+        if (overrides == null) return other.overrides == null;
+        return overrides.equals(other.overrides);
+    }
+
+    // Overrides are never null - they're all decoded from a value.
+    private Object getOverride(PermittedOptionProvider.ArgumentParam<?, ?> option) {
+        return overrides == null ? null : overrides.get(option.getName());
+    }
+
     @Override
     public boolean optionIsSet(PermittedOptionProvider.ArgumentParam<?, ?> option) {
-        if (overrides.containsKey(option.getName())) return true;
+        if (getOverride(option) != null) return true;
         return delegate.optionIsSet(option);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T getOption(PermittedOptionProvider.ArgumentParam<T, Void> option) {
-        String override = overrides.get(option.getName());
-        if (override != null) {
-            return option.getFn().invoke(override, null, this);
-        }
+        Object override = getOverride(option);
+        if (override != null) return (T) override;
         return delegate.getOption(option);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T, A> T getOption(PermittedOptionProvider.ArgumentParam<T, A> option, A arg) {
-        String override = overrides.get(option.getName());
-        if (override != null) {
-            return option.getFn().invoke(override, arg, this);
-        }
+        Object override = getOverride(option);
+        if (override != null) return (T) override;
         return delegate.getOption(option, arg);
     }
 }
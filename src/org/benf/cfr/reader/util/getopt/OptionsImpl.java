@@ -11,9 +11,19 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class OptionsImpl implements Options {
     private final Map<String, String> opts;
+    /*
+     * Options can't change once we've been created, so each is decoded the first time it's asked for, and
+     * kept, indexed by ArgumentParam.getIdx.  (Not up front, as a bad value for an option which is never
+     * used shouldn't be an error.)  Options which take an argument (eg the class file version) keep a map
+     * of results by argument instead.  A failure to decode isn't kept - it'll fail again next time.
+     */
+    private final AtomicReferenceArray<Object> decoded;
+    private static final Object NULL_VALUE = new Object();
 
     private static class DefaultingIntDecoder implements OptionDecoder<Integer> {
         final Integer defaultValue;
@@ -534,19 +544,107 @@ public class OptionsImpl implements Options {
     public static final PermittedOptionProvider.Argument<Boolean> TRACK_BYTECODE_LOC = register(new PermittedOptionProvider.Argument<Boolean>(
             "trackbytecodeloc", defaultFalseBooleanDecoder,
             "Propagate bytecode location info."));
+    public static final PermittedOptionProvider.Argument<Integer> THREADS = register(new PermittedOptionProvider.Argument<Integer>(
+            "threads", new DefaultingIntDecoder(1),
+            "Number of worker threads used to analyse classes when decompiling a jar.  Output is emitted in the same order as a single threaded run."));
+    public static final PermittedOptionProvider.Argument<Integer> MAX_OPEN_JARS = register(new PermittedOptionProvider.Argument<Integer>(
+            "maxopenjars", new DefaultingIntDecoder(64),
+            "Maximum number of jar files (target or class path) to hold open during analysis.  Least recently used jars are closed beyond this."));
+    public static final PermittedOptionProvider.Argument<Boolean> MEMORY_MAP = register(new PermittedOptionProvider.Argument<Boolean>(
+            "mmap", defaultFalseBooleanDecoder,
+            "Read classes stored uncompressed in jars, and class files over 64K, via memory mapping rather than copying.  Reduces heap use on very large inputs."));
+    public static final PermittedOptionProvider.Argument<Integer> PARALLEL_RECOVERY = register(new PermittedOptionProvider.Argument<Integer>(
+            "parallelrecovery", new DefaultingIntDecoder(0),
+            "When a method fails to decompile, build the op02 graphs of recovery passes on up to this many threads, ahead of need.  The rest of each pass still runs in order, so the result is the same as for serial recovery (0)."));
+    public static final PermittedOptionProvider.Argument<String> CACHE_DIR = register(new PermittedOptionProvider.Argument<String>(
+            "cachedir", defaultNullStringDecoder,
+            "Directory in which to keep decompiled output between runs.  Output is reused when a class (and its inner classes), the options and any obfuscation mapping file are unchanged - other classes on the classpath are not considered."));
+    public static final PermittedOptionProvider.Argument<Integer> CACHE_SIZE = register(new PermittedOptionProvider.Argument<Integer>(
+            "cachesize", new DefaultingIntDecoder(256),
+            "Maximum size of the --cachedir cache, in megabytes.  Least recently used entries are removed beyond this."));
+    public static final PermittedOptionProvider.Argument<Integer> DAEMON_PORT = register(new PermittedOptionProvider.Argument<Integer>(
+            "daemonport", default0intDecoder,
+            "Rather than analysing the files given, listen on this local port (0 for any free port) for requests, keeping the classpath and jars warm between them.  Each connection sends the daemon's token (see daemontokenfile) as its first line, then a single request - 'analyse <path>', 'invalidate' or 'shutdown'.  Decompiled output is returned over the connection."));
+    public static final PermittedOptionProvider.Argument<String> DAEMON_TOKEN_FILE = register(new PermittedOptionProvider.Argument<String>(
+            "daemontokenfile", defaultNullStringDecoder,
+            "File to write the daemon's token to, readable only by the user running it - connections without the token are refused.  If not given, one is made in a new private temporary directory.  Either way, its path is printed on startup, and it's removed on shutdown."));
+    public static final PermittedOptionProvider.Argument<Boolean> LAZY_CONSTANT_POOL = register(new PermittedOptionProvider.Argument<Boolean>(
+            "lazyconstpool", defaultTrueBooleanDecoder,
+            "Only decode constant pool entries when they're first used.  (Ignored if hidelongstrings is set)."));
+    public static final PermittedOptionProvider.Argument<String> CLASS_PATH_INDEX = register(new PermittedOptionProvider.Argument<String>(
+            "classpathindex", defaultNullStringDecoder,
+            "File in which to keep an index of the classes in each classpath jar, so jars which haven't changed (by size and modification time) don't have to be rescanned on each run.  Created if missing."));
+    public static final PermittedOptionProvider.Argument<Integer> MEMORY_BUDGET = register(new PermittedOptionProvider.Argument<Integer>(
+            "membudget", default0intDecoder,
+            "When decompiling a jar, try to stay within this much heap, in megabytes (0 for no limit).  Once over, library class files are dropped between classes, and reloaded if needed again.  Class files from the jar being decompiled are always kept, as later classes rely on what analysis records in them.  Implies lomem.  Peak heap is reported in the summary."));
+    public static final PermittedOptionProvider.Argument<Boolean> LOCALITY_SCHEDULE = register(new PermittedOptionProvider.Argument<Boolean>(
+            "localityschedule", defaultFalseBooleanDecoder,
+            "When decompiling a jar, process classes grouped by package, outer class and inheritance (supertypes first) rather than in jar order - these groups are also what worker threads are given.  Changes the order of output when writing to a single stream."));
+    public static final PermittedOptionProvider.Argument<Boolean> INSTRUMENT_PASSES = register(new PermittedOptionProvider.Argument<Boolean>(
+            "instrumentpasses", defaultFalseBooleanDecoder,
+            "Record wall time, allocation and invocation count of each analysis pass, per method and recovery pass.  Reported as JSON, once analysis is complete, to the INSTRUMENTATION sink (API) and/or the passreport file."));
+    public static final PermittedOptionProvider.Argument<String> PASS_REPORT = register(new PermittedOptionProvider.Argument<String>(
+            "passreport", defaultNullStringDecoder,
+            "File to write the instrumentpasses report to (JSON).  Implies instrumentpasses."));
+    public static final PermittedOptionProvider.Argument<Integer> METHOD_TIME_LIMIT = register(new PermittedOptionProvider.Argument<Integer>(
+            "methodtimelimit", default0intDecoder,
+            "Give up on a method (emitting it as a failure) once it has been analysed for this many milliseconds, including recovery passes.  0 for no limit."));
+    public static final PermittedOptionProvider.Argument<Integer> METHOD_SIZE_LIMIT = register(new PermittedOptionProvider.Argument<Integer>(
+            "methodsizelimit", default0intDecoder,
+            "Give up on a method (emitting it as a failure) if analysis grows it beyond this many statements.  0 for no limit."));
+    public static final PermittedOptionProvider.Argument<Integer> CLASS_TIME_LIMIT = register(new PermittedOptionProvider.Argument<Integer>(
+            "classtimelimit", default0intDecoder,
+            "Give up on the remaining methods of a class (emitting them as failures) once it has been analysed for this many milliseconds.  0 for no limit."));
+    public static final PermittedOptionProvider.Argument<Integer> CLASS_SIZE_LIMIT = register(new PermittedOptionProvider.Argument<Integer>(
+            "classsizelimit", default0intDecoder,
+            "Give up on the remaining methods of a class (emitting them as failures) once the methods analysed contain more than this many instructions in total.  0 for no limit."));
 
 
     public OptionsImpl(Map<String, String> opts) {
         this.opts = new HashMap<String, String>(opts);
+        this.decoded = new AtomicReferenceArray<Object>(PermittedOptionProvider.ArgumentParam.getCount());
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T getOption(PermittedOptionProvider.ArgumentParam<T, Void> option) {
-        return option.getFn().invoke(opts.get(option.getName()), null, this);
+        int idx = option.getIdx();
+        if (idx >= decoded.length()) return decode(option, null);
+        Object res = decoded.get(idx);
+        if (res == null) {
+            T value = decode(option, null);
+            decoded.set(idx, value == null ? NULL_VALUE : value);
+            return value;
+        }
+        return res == NULL_VALUE ? null : (T) res;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T, A> T getOption(PermittedOptionProvider.ArgumentParam<T, A> option, A arg) {
+        int idx = option.getIdx();
+        if (arg == null || idx >= decoded.length()) return decode(option, arg);
+        Map<Object, Object> byArg = getByArg(idx);
+        Object res = byArg.get(arg);
+        if (res == null) {
+            T value = decode(option, arg);
+            byArg.put(arg, value == null ? NULL_VALUE : value);
+            return value;
+        }
+        return res == NULL_VALUE ? null : (T) res;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> getByArg(int idx) {
+        Object res = decoded.get(idx);
+        if (res == null) {
+            decoded.compareAndSet(idx, null, new ConcurrentHashMap<Object, Object>());
+            res = decoded.get(idx);
+        }
+        return (Map<Object, Object>) res;
+    }
+
+    private <T, A> T decode(PermittedOptionProvider.ArgumentParam<T, A> option, A arg) {
         return option.getFn().invoke(opts.get(option.getName()), arg, this);
     }
 
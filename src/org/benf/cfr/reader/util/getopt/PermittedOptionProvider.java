@@ -1,6 +1,7 @@
 package org.benf.cfr.reader.util.getopt;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public interface PermittedOptionProvider {
     List<String> getFlags();
@@ -8,6 +9,9 @@ public interface PermittedOptionProvider {
     List<? extends ArgumentParam<?, ?>> getArguments();
 
     class ArgumentParam<X, InputType> {
+        private static final AtomicInteger count = new AtomicInteger();
+
+        private final int idx;
         private final String name;
         private final OptionDecoderParam<X, InputType> fn;
         private final String help;
@@ -18,6 +22,7 @@ public interface PermittedOptionProvider {
         }
 
         ArgumentParam(String name, OptionDecoderParam<X, InputType> fn, String help, boolean hidden) {
+            this.idx = count.getAndIncrement();
             this.name = name;
             this.fn = fn;
             this.help = help;
@@ -28,6 +33,17 @@ public interface PermittedOptionProvider {
             return name;
         }
 
+        /*
+         * Dense, in order of creation - so options can be held in an array.
+         */
+        int getIdx() {
+            return idx;
+        }
+
+        static int getCount() {
+            return count.get();
+        }
+
         OptionDecoderParam<X, InputType> getFn() {
             return fn;
         }
@@ -16,5 +16,7 @@ public interface DumperFactory {
 
     ExceptionDumper getExceptionDumper();
 
+    InstrumentationDumper getInstrumentationDumper();
+
     DumperFactory getFactoryWithPrefix(String prefix, int version);
 }
@@ -0,0 +1,44 @@
+package org.benf.cfr.reader.util.output;
+
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
+/*
+ * Writes the report to the file given by 'passreport', if any.
+ */
+public class FileInstrumentationDumper implements InstrumentationDumper {
+    private final String path;
+
+    public FileInstrumentationDumper(Options options) {
+        this.path = options.getOption(OptionsImpl.PASS_REPORT);
+    }
+
+    @Override
+    public void write(String report) {
+        if (path == null) return;
+        try {
+            File file = new File(path);
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IllegalStateException("Couldn't create dir: " + parent);
+            }
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            try {
+                writer.write(report);
+            } finally {
+                writer.close();
+            }
+        } catch (FileNotFoundException e) {
+            throw new Dumper.CannotCreate(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
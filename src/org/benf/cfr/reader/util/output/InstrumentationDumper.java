@@ -0,0 +1,8 @@
+package org.benf.cfr.reader.util.output;
+
+/*
+ * Receives the pass timing report (see option 'instrumentpasses'), once analysis is complete.
+ */
+public interface InstrumentationDumper {
+    void write(String report);
+}
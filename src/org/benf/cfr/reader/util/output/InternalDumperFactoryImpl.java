@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class InternalDumperFactoryImpl implements DumperFactory {
     private final boolean checkDupes;
@@ -26,6 +27,8 @@ public class InternalDumperFactoryImpl implements DumperFactory {
     private final Options options;
     private final ProgressDumper progressDumper;
     private final String prefix;
+    // Numbers file names which had to be shortened - shared with the prefixed copies.
+    private final AtomicInteger truncCount;
 
 
     public InternalDumperFactoryImpl(Options options) {
@@ -37,6 +40,7 @@ public class InternalDumperFactoryImpl implements DumperFactory {
             progressDumper = ProgressDumperNop.INSTANCE;
         }
         this.prefix = "";
+        this.truncCount = new AtomicInteger();
     }
 
     private InternalDumperFactoryImpl(InternalDumperFactoryImpl other, String prefix) {
@@ -45,6 +49,7 @@ public class InternalDumperFactoryImpl implements DumperFactory {
         this.options = other.options;
         this.progressDumper = other.progressDumper;
         this.prefix = prefix;
+        this.truncCount = other.truncCount;
     }
 
     @Override
@@ -64,12 +69,12 @@ public class InternalDumperFactoryImpl implements DumperFactory {
     }
 
 
-    public Dumper getNewTopLevelDumper(JavaTypeInstance classType, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, IllegalIdentifierDump illegalIdentifierDump) {
+    public synchronized Dumper getNewTopLevelDumper(JavaTypeInstance classType, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, IllegalIdentifierDump illegalIdentifierDump) {
         Pair<String, Boolean> targetInfo = getPathAndClobber();
 
         if (targetInfo == null) return new StdIODumper(typeUsageInformation, options, illegalIdentifierDump, new MovableDumperContext());
 
-        FileDumper res = new FileDumper(targetInfo.getFirst() + prefix, targetInfo.getSecond(), classType, summaryDumper, typeUsageInformation, options, illegalIdentifierDump);
+        FileDumper res = new FileDumper(targetInfo.getFirst() + prefix, targetInfo.getSecond(), classType, summaryDumper, typeUsageInformation, options, illegalIdentifierDump, truncCount);
         if (checkDupes) {
             if (!seen.add(res.getFileName().toLowerCase())) {
                 seenCaseDupe = true;
@@ -124,6 +129,11 @@ public class InternalDumperFactoryImpl implements DumperFactory {
         return new StdErrExceptionDumper();
     }
 
+    @Override
+    public InstrumentationDumper getInstrumentationDumper() {
+        return new FileInstrumentationDumper(options);
+    }
+
     private class AdditionalComments implements DecompilerCommentSource {
         @Override
         public List<DecompilerComment> getComments() {
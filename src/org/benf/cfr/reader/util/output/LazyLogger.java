@@ -0,0 +1,117 @@
+package org.benf.cfr.reader.util.output;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logger which only builds messages that will actually be logged.
+ *
+ * Messages are formatted from a pattern, with each {} replaced by the next argument - so the
+ * cost of a disabled call is a level check, rather than concatenation and toString() of every
+ * argument.  (Callers in very tight loops should still check isInfo() etc once, outside the loop,
+ * to avoid boxing primitive arguments.)
+ */
+public class LazyLogger {
+    private final Logger logger;
+
+    LazyLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    public boolean isWarning() {
+        return logger.isLoggable(Level.WARNING);
+    }
+
+    public boolean isInfo() {
+        return logger.isLoggable(Level.INFO);
+    }
+
+    public boolean isFine() {
+        return logger.isLoggable(Level.FINE);
+    }
+
+    public boolean isFiner() {
+        return logger.isLoggable(Level.FINER);
+    }
+
+    public boolean isFinest() {
+        return logger.isLoggable(Level.FINEST);
+    }
+
+    /*
+     * Fixed arity rather than varargs, so that a disabled call doesn't even allocate an argument array.
+     */
+    public void warning(String message) {
+        if (logger.isLoggable(Level.WARNING)) logger.log(Level.WARNING, message);
+    }
+
+    public void warning(String pattern, Object arg) {
+        if (logger.isLoggable(Level.WARNING)) logger.log(Level.WARNING, format(pattern, arg));
+    }
+
+    public void warning(String pattern, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.WARNING)) logger.log(Level.WARNING, format(pattern, arg1, arg2));
+    }
+
+    public void info(String message) {
+        if (logger.isLoggable(Level.INFO)) logger.log(Level.INFO, message);
+    }
+
+    public void info(String pattern, Object arg) {
+        if (logger.isLoggable(Level.INFO)) logger.log(Level.INFO, format(pattern, arg));
+    }
+
+    public void info(String pattern, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.INFO)) logger.log(Level.INFO, format(pattern, arg1, arg2));
+    }
+
+    public void fine(String message) {
+        if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, message);
+    }
+
+    public void fine(String pattern, Object arg) {
+        if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, format(pattern, arg));
+    }
+
+    public void fine(String pattern, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, format(pattern, arg1, arg2));
+    }
+
+    public void finer(String message) {
+        if (logger.isLoggable(Level.FINER)) logger.log(Level.FINER, message);
+    }
+
+    public void finer(String pattern, Object arg) {
+        if (logger.isLoggable(Level.FINER)) logger.log(Level.FINER, format(pattern, arg));
+    }
+
+    public void finer(String pattern, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.FINER)) logger.log(Level.FINER, format(pattern, arg1, arg2));
+    }
+
+    public void finest(String message) {
+        if (logger.isLoggable(Level.FINEST)) logger.log(Level.FINEST, message);
+    }
+
+    public void finest(String pattern, Object arg) {
+        if (logger.isLoggable(Level.FINEST)) logger.log(Level.FINEST, format(pattern, arg));
+    }
+
+    public void finest(String pattern, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.FINEST)) logger.log(Level.FINEST, format(pattern, arg1, arg2));
+    }
+
+    static String format(String pattern, Object... args) {
+        if (args.length == 0) return pattern;
+        StringBuilder sb = new StringBuilder(pattern.length() + 16 * args.length);
+        int argIdx = 0;
+        int from = 0;
+        int idx;
+        while (argIdx < args.length && (idx = pattern.indexOf("{}", from)) != -1) {
+            sb.append(pattern, from, idx).append(args[argIdx++]);
+            from = idx + 2;
+        }
+        sb.append(pattern, from, pattern.length());
+        return sb.toString();
+    }
+}
@@ -24,4 +24,11 @@ public class LoggerFactory {
         logger.setLevel(level);
         return logger;
     }
+
+    /*
+     * Prefer this for anything which might be called often - see LazyLogger.
+     */
+    public static <T> LazyLogger createLazy(Class<T> clazz) {
+        return new LazyLogger(create(clazz));
+    }
 }
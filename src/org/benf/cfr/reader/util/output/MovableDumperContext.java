@@ -7,4 +7,5 @@ class MovableDumperContext {
     int indent;
     int outputCount = 0;
     int currentLine = 1; // lines are 1 based.  Sigh.
+    OutputCapture capture; // if set, a copy of everything written.
 }
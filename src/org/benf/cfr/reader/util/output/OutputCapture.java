@@ -0,0 +1,38 @@
+package org.benf.cfr.reader.util.output;
+
+/*
+ * A copy of everything a StreamDumper writes, so it can be reproduced later without re-analysing.
+ *
+ * If any summary errors were raised while writing, we don't consider the copy worth keeping.
+ */
+public class OutputCapture {
+    private final StringBuilder text = new StringBuilder();
+    private boolean attached;
+    private boolean errors;
+
+    /*
+     * Returns false if this dumper can't be captured - i.e. isn't producing plain text.
+     */
+    public boolean attach(Dumper dumper) {
+        if (!(dumper instanceof StreamDumper)) return false;
+        ((StreamDumper) dumper).captureOutput(this);
+        attached = true;
+        return true;
+    }
+
+    void append(String s) {
+        text.append(s);
+    }
+
+    void noteError() {
+        errors = true;
+    }
+
+    /*
+     * Null if there's nothing reusable.
+     */
+    public String getText() {
+        if (!attached || errors) return null;
+        return text.toString();
+    }
+}
@@ -38,7 +38,7 @@ public class SinkDumperFactory implements DumperFactory {
     }
 
     @Override
-    public Dumper getNewTopLevelDumper(JavaTypeInstance classType, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, IllegalIdentifierDump illegalIdentifierDump) {
+    public synchronized Dumper getNewTopLevelDumper(JavaTypeInstance classType, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, IllegalIdentifierDump illegalIdentifierDump) {
         List<OutputSinkFactory.SinkClass> supported = sinkFactory.getSupportedSinks(OutputSinkFactory.SinkType.JAVA, Arrays.asList(OutputSinkFactory.SinkClass.DECOMPILED_MULTIVER, OutputSinkFactory.SinkClass.DECOMPILED, OutputSinkFactory.SinkClass.TOKEN_STREAM, OutputSinkFactory.SinkClass.STRING));
         if (supported == null) supported = justString;
         MethodErrorCollector methodErrorCollector = new SummaryDumperMethodErrorCollector(classType, summaryDumper);
@@ -231,6 +231,28 @@ public class SinkDumperFactory implements DumperFactory {
         return new SinkStringExceptionDumper(stringSink);
     }
 
+    /*
+     * The report goes to the sink, if one is provided, as well as to any file we've been asked for.
+     */
+    @Override
+    public InstrumentationDumper getInstrumentationDumper() {
+        final InstrumentationDumper fileDumper = new FileInstrumentationDumper(options);
+        List<OutputSinkFactory.SinkClass> supported = sinkFactory.getSupportedSinks(OutputSinkFactory.SinkType.INSTRUMENTATION, justString);
+        if (supported == null) supported = justString;
+        OutputSinkFactory.Sink<String> sink = null;
+        if (supported.contains(OutputSinkFactory.SinkClass.STRING)) {
+            sink = sinkFactory.getSink(OutputSinkFactory.SinkType.INSTRUMENTATION, OutputSinkFactory.SinkClass.STRING);
+        }
+        final OutputSinkFactory.Sink<String> stringSink = sink == null ? new NopStringSink() : sink;
+        return new InstrumentationDumper() {
+            @Override
+            public void write(String report) {
+                fileDumper.write(report);
+                stringSink.write(report);
+            }
+        };
+    }
+
     private static class NopStringSink implements OutputSinkFactory.Sink<String> {
         @Override
         public void write(String sinkable) {
@@ -23,7 +23,7 @@ public class StdIODumper extends StreamDumper {
     }
 
     @Override
-    public void addSummaryError(Method method, String s) {
+    protected void reportSummaryError(Method method, String s) {
     }
 
     @Override
@@ -5,6 +5,7 @@ import org.benf.cfr.reader.bytecode.analysis.parse.utils.QuotingUtils;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.MethodPrototype;
+import org.benf.cfr.reader.entities.Method;
 import org.benf.cfr.reader.mapping.NullMapping;
 import org.benf.cfr.reader.mapping.ObfuscationMapping;
 import org.benf.cfr.reader.state.TypeUsageInformation;
@@ -51,14 +52,38 @@ public abstract class StreamDumper extends AbstractDumper {
 
     protected abstract void write(String s);
 
+    private void emit(String s) {
+        if (context.capture != null) context.capture.append(s);
+        write(s);
+    }
+
+    /*
+     * Keep a copy of all output from here on, so that it can be reproduced with writeCaptured.
+     */
+    void captureOutput(OutputCapture capture) {
+        context.capture = capture;
+    }
+
+    public void writeCaptured(String text) {
+        emit(text);
+    }
+
+    @Override
+    public final void addSummaryError(Method method, String s) {
+        if (context.capture != null) context.capture.noteError();
+        reportSummaryError(method, s);
+    }
+
+    protected abstract void reportSummaryError(Method method, String s);
+
     @Override
     public Dumper label(String s, boolean inline) {
         processPendingCR();
         if (inline) {
             doIndent();
-            write(s + ": ");
+            emit(s + ": ");
         } else {
-            write(s + ":");
+            emit(s + ":");
             newln();
         }
         return this;
@@ -93,7 +118,7 @@ public abstract class StreamDumper extends AbstractDumper {
             doNewLn = true;
         }
         if (convertUTF) s = QuotingUtils.enquoteUTF(s);
-        write(s);
+        emit(s);
         context.atStart = false;
         if (doNewLn) {
             newln();
@@ -134,7 +159,7 @@ public abstract class StreamDumper extends AbstractDumper {
     @Override
     public Dumper newln() {
         if (context.pendingCR) {
-            write("\n");
+            emit("\n");
             context.currentLine++;
             if (context.atStart && context.inBlockComment != BlockCommentState.Not) {
                 doIndent();
@@ -148,7 +173,7 @@ public abstract class StreamDumper extends AbstractDumper {
 
     @Override
     public Dumper endCodeln() {
-        write(";");
+        emit(";");
         context.pendingCR = true;
         context.atStart = true;
         context.outputCount++;
@@ -158,14 +183,14 @@ public abstract class StreamDumper extends AbstractDumper {
     private void doIndent() {
         if (!context.atStart) return;
         String indents = "    ";
-        for (int x = 0; x < context.indent; ++x) write(indents);
+        for (int x = 0; x < context.indent; ++x) emit(indents);
         context.atStart = false;
-        if (context.inBlockComment != BlockCommentState.Not) write (" * ");
+        if (context.inBlockComment != BlockCommentState.Not) emit(" * ");
     }
 
     private void processPendingCR() {
         if (context.pendingCR) {
-            write("\n");
+            emit("\n");
             context.atStart = true;
             context.pendingCR = false;
             context.currentLine++;
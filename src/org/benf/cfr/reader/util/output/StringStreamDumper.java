@@ -30,7 +30,7 @@ public class StringStreamDumper extends StreamDumper {
     }
 
     @Override
-    public void addSummaryError(Method method, String s) {
+    protected void reportSummaryError(Method method, String s) {
         methodErrorCollector.addSummaryError(method, s);
     }
 